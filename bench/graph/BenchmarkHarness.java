@@ -0,0 +1,188 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * A small harness for throughput benchmarks, in the manner of JMH.
+ *
+ * <p>A benchmark is run for some warmup iterations, whose results are
+ * thrown away, and then for some measured iterations. Before each iteration
+ * a setup step, which is not timed, prepares the state the iteration works
+ * on; the iteration then performs a fixed number of operations. For every
+ * benchmark the harness prints the mean throughput in operations per second
+ * with its standard deviation over the measured iterations, and the bytes
+ * allocated per operation by the benchmark thread, like the gc.alloc.rate.norm
+ * of JMH's gc profiler.
+ *
+ * <p>Benchmarks are named like "set.insert", and have parameters like
+ * "impl=CompactGraph edges=1000". The harness understands these command
+ * line options:
+ * <ul><li> -wi n: number of warmup iterations, default 3
+ *     <li> -i n: number of measured iterations, default 5
+ *     <li> -csv: print results as comma-separated values
+ *     <li> a regular expression: run only the benchmarks whose name and
+ *          parameters contain a match </ul>
+ * <p>Other options are left to the caller, and must each take one value.
+ *
+ * <p>Run benchmarks without -ea, since several Graph implementations check
+ * their rep invariant in assertions.
+ */
+public final class BenchmarkHarness {
+
+	/** The timed part of one iteration of a benchmark. */
+	public interface Iteration {
+
+		/**
+		 * Perform the iteration's operations.
+		 *
+		 * @return any value computed from the operations' results, so that
+		 *         they can't be optimized away
+		 */
+		long run();
+	}
+
+	private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+	private final int warmupIterations;
+	private final int iterations;
+	private final boolean csv;
+	private final Pattern filter;
+	private boolean headerPrinted = false;
+	private long sink = 0;
+
+	/**
+	 * Create a harness from command line options as described above,
+	 * removing the options it understands from args.
+	 *
+	 * @param args command line arguments; those left are for the caller
+	 */
+	public BenchmarkHarness(List<String> args) {
+		int warmupIterations = 3;
+		int iterations = 5;
+		boolean csv = false;
+		Pattern filter = null;
+		for (Iterator<String> it = args.iterator(); it.hasNext();) {
+			String arg = it.next();
+			if (arg.equals("-wi") || arg.equals("-i")) {
+				it.remove();
+				int n = Integer.parseInt(it.next());
+				it.remove();
+				if (arg.equals("-wi")) {
+					warmupIterations = n;
+				} else {
+					iterations = Math.max(1, n);
+				}
+			} else if (arg.equals("-csv")) {
+				it.remove();
+				csv = true;
+			} else if (arg.startsWith("-")) {
+				// an option of the caller's, taken to have a value
+				if (it.hasNext()) {
+					it.next();
+				}
+			} else if (filter == null) {
+				it.remove();
+				filter = Pattern.compile(arg);
+			}
+		}
+		this.warmupIterations = warmupIterations;
+		this.iterations = iterations;
+		this.csv = csv;
+		this.filter = filter;
+	}
+
+	/**
+	 * @param benchmark name of a benchmark
+	 * @param params its parameters
+	 * @return true iff the benchmark is selected by the command line filter
+	 */
+	public boolean includes(String benchmark, String params) {
+		return filter == null || filter.matcher(benchmark + " " + params).find();
+	}
+
+	/**
+	 * Run a benchmark and print its results, unless it is filtered out.
+	 *
+	 * @param benchmark name of the benchmark
+	 * @param params its parameters, as space-separated key=value pairs
+	 * @param operations number of operations performed by each iteration,
+	 *        positive
+	 * @param setup prepares and returns each iteration; called before every
+	 *        iteration, and not timed
+	 */
+	public void run(String benchmark, String params, long operations, Supplier<Iteration> setup) {
+		if (!includes(benchmark, params)) {
+			return;
+		}
+		for (int i = 0; i < warmupIterations; i++) {
+			sink += setup.get().run();
+		}
+		double[] throughputs = new double[iterations];
+		long allocated = 0;
+		for (int i = 0; i < iterations; i++) {
+			Iteration iteration = setup.get();
+			long allocatedBefore = allocatedBytes();
+			long start = System.nanoTime();
+			sink += iteration.run();
+			long elapsed = System.nanoTime() - start;
+			allocated += allocatedBytes() - allocatedBefore;
+			throughputs[i] = operations * 1e9 / Math.max(1, elapsed);
+		}
+
+		double mean = 0;
+		for (double t : throughputs) {
+			mean += t / iterations;
+		}
+		double variance = 0;
+		for (double t : throughputs) {
+			variance += (t - mean) * (t - mean) / iterations;
+		}
+		double bytesPerOp = THREADS == null ? Double.NaN : (double) allocated / iterations / operations;
+		print(benchmark, params, mean, Math.sqrt(variance), bytesPerOp);
+	}
+
+	private void print(String benchmark, String params, double mean, double deviation, double bytesPerOp) {
+		if (!headerPrinted) {
+			headerPrinted = true;
+			if (csv) {
+				System.out.println("benchmark,params,ops/s,error,B/op");
+			} else {
+				System.out.printf("%-14s %-58s %14s %12s %10s%n", "benchmark", "params", "ops/s", "error", "B/op");
+			}
+		}
+		if (csv) {
+			System.out.printf(Locale.ROOT, "%s,%s,%.1f,%.1f,%.1f%n", benchmark, params, mean, deviation, bytesPerOp);
+		} else {
+			System.out.printf(Locale.ROOT, "%-14s %-58s %14.0f %12.0f %10.1f%n", benchmark, params, mean, deviation,
+					bytesPerOp);
+		}
+		if (sink == 42) {
+			System.out.println(); // keeps the results from being optimized away
+		}
+	}
+
+	private static long allocatedBytes() {
+		return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static com.sun.management.ThreadMXBean threads() {
+		java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean counting = (com.sun.management.ThreadMXBean) threads;
+			if (counting.isThreadAllocatedMemorySupported()) {
+				counting.setThreadAllocatedMemoryEnabled(true);
+				return counting;
+			}
+		}
+		return null;
+	}
+
+}
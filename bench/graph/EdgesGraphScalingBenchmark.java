@@ -0,0 +1,87 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Random;
+
+/**
+ * Scaling benchmark for ConcreteEdgesGraph.
+ * 
+ * <p>Builds graphs of 10^5 to 10^6 random edges and reports the average cost
+ * of set (insert and update), sources and targets at each size. With indexed
+ * edge storage the per-operation cost should stay roughly flat as the graph
+ * grows, instead of growing linearly with the number of edges.
+ * 
+ * <p>Run with: java graph.EdgesGraphScalingBenchmark [maxEdges]
+ */
+public class EdgesGraphScalingBenchmark {
+
+	private static final int AVERAGE_DEGREE = 8;
+	private static final int QUERIES = 200_000;
+
+	public static void main(String[] args) {
+		int maxEdges = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+		// warm up the JIT on a small graph before measuring
+		run(50_000, false);
+
+		System.out.printf("%10s %14s %14s %14s %14s%n", "edges", "insert ns/op", "update ns/op", "targets ns/op",
+				"sources ns/op");
+		for (int edges = 100_000; edges <= maxEdges; edges *= 2) {
+			run(edges, true);
+		}
+	}
+
+	private static void run(int edgeCount, boolean report) {
+		int vertexCount = Math.max(2, edgeCount / AVERAGE_DEGREE);
+		String[] labels = new String[vertexCount];
+		for (int i = 0; i < vertexCount; i++) {
+			labels[i] = "v" + i;
+		}
+
+		Random random = new Random(42);
+		int[] from = new int[edgeCount];
+		int[] to = new int[edgeCount];
+		for (int i = 0; i < edgeCount; i++) {
+			from[i] = random.nextInt(vertexCount);
+			to[i] = random.nextInt(vertexCount);
+		}
+
+		ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+
+		long start = System.nanoTime();
+		for (int i = 0; i < edgeCount; i++) {
+			graph.set(labels[from[i]], labels[to[i]], 1);
+		}
+		long insert = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < edgeCount; i++) {
+			graph.set(labels[from[i]], labels[to[i]], 2);
+		}
+		long update = System.nanoTime() - start;
+
+		long sink = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < QUERIES; i++) {
+			sink += graph.targets(labels[from[i % edgeCount]]).size();
+		}
+		long targets = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < QUERIES; i++) {
+			sink += graph.sources(labels[to[i % edgeCount]]).size();
+		}
+		long sources = System.nanoTime() - start;
+
+		if (report) {
+			System.out.printf("%10d %14.1f %14.1f %14.1f %14.1f%n", edgeCount, (double) insert / edgeCount,
+					(double) update / edgeCount, (double) targets / QUERIES, (double) sources / QUERIES);
+		}
+		if (sink == 42) {
+			System.out.println(); // keeps the queries from being optimized away
+		}
+	}
+
+}
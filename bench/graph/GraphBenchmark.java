@@ -0,0 +1,169 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Throughput and allocation benchmarks of the Graph implementations, for
+ * regression baselines.
+ *
+ * <p>Every mutable Graph implementation is measured on the same workloads:
+ * graphs of several sizes (in edges) and densities (in edges per vertex),
+ * with uniform or Zipf-distributed edge endpoints. The benchmarks are:
+ * <ul><li> add: add new vertices to the graph
+ *     <li> set.insert: build the graph by setting every edge
+ *     <li> set.update: change the weight of every edge
+ *     <li> set.delete: set every edge to weight 0
+ *     <li> remove: remove every vertex
+ *     <li> vertices: get and iterate over the set of vertices
+ *     <li> sources, targets: get the edges into / out of the endpoints of
+ *          every edge, so that busy vertices are queried more often </ul>
+ *
+ * <p>Run with: java graph.GraphBenchmark [harness options] [-sizes n,...]
+ * [-degrees d,...]
+ * <p>where the harness options are those of {@link BenchmarkHarness}; e.g.
+ * "java graph.GraphBenchmark -sizes 100000 'targets.*zipf'". The default
+ * sizes are 1000, 10000 and 100000 edges, and the default degrees 4 and 32.
+ */
+public class GraphBenchmark {
+
+	private static final int VERTICES_QUERIES = 200;
+
+	public static void main(String[] args) {
+		List<String> options = new ArrayList<>(Arrays.asList(args));
+		BenchmarkHarness harness = new BenchmarkHarness(options);
+		int[] sizes = { 1_000, 10_000, 100_000 };
+		int[] degrees = { 4, 32 };
+		for (int i = 0; i + 1 < options.size(); i += 2) {
+			int[] values = Arrays.stream(options.get(i + 1).split(",")).mapToInt(Integer::parseInt).toArray();
+			switch (options.get(i)) {
+			case "-sizes":
+				sizes = values;
+				break;
+			case "-degrees":
+				degrees = values;
+				break;
+			default:
+				throw new IllegalArgumentException("unknown option " + options.get(i));
+			}
+		}
+
+		Map<String, Supplier<Graph<String>>> implementations = new LinkedHashMap<>();
+		implementations.put("ConcreteEdgesGraph", ConcreteEdgesGraph::new);
+		implementations.put("ConcreteVerticesGraph", ConcreteVerticesGraph::new);
+		implementations.put("CompactGraph", CompactGraph::new);
+		implementations.put("OffHeapGraph", OffHeapGraph::new);
+		implementations.put("ConcurrentGraph", ConcurrentGraph::new);
+
+		for (int size : sizes) {
+			for (int degree : degrees) {
+				for (boolean zipf : new boolean[] { false, true }) {
+					GraphWorkload workload = new GraphWorkload(size, degree, zipf, 42);
+					for (Map.Entry<String, Supplier<Graph<String>>> e : implementations.entrySet()) {
+						String params = String.format("impl=%s edges=%d degree=%d dist=%s", e.getKey(),
+								workload.edgeCount(), degree, zipf ? "zipf" : "uniform");
+						run(harness, params, e.getValue(), workload);
+					}
+				}
+			}
+		}
+	}
+
+	private static void run(BenchmarkHarness harness, String params, Supplier<Graph<String>> factory,
+			GraphWorkload w) {
+		String[] labels = w.labels;
+		int[] from = w.from;
+		int[] to = w.to;
+		int edges = w.edgeCount();
+
+		harness.run("add", params, labels.length, () -> {
+			Graph<String> g = w.addTo(factory.get());
+			return () -> {
+				long added = 0;
+				for (String label : w.newLabels) {
+					added += g.add(label) ? 1 : 0;
+				}
+				return added;
+			};
+		});
+		harness.run("set.insert", params, edges, () -> {
+			Graph<String> g = factory.get();
+			return () -> {
+				long sum = 0;
+				for (int i = 0; i < edges; i++) {
+					sum += g.set(labels[from[i]], labels[to[i]], 1);
+				}
+				return sum;
+			};
+		});
+		harness.run("set.update", params, edges, () -> {
+			Graph<String> g = w.addTo(factory.get());
+			return () -> {
+				long sum = 0;
+				for (int i = 0; i < edges; i++) {
+					sum += g.set(labels[from[i]], labels[to[i]], 2);
+				}
+				return sum;
+			};
+		});
+		harness.run("set.delete", params, edges, () -> {
+			Graph<String> g = w.addTo(factory.get());
+			return () -> {
+				long sum = 0;
+				for (int i = 0; i < edges; i++) {
+					sum += g.set(labels[from[i]], labels[to[i]], 0);
+				}
+				return sum;
+			};
+		});
+		harness.run("remove", params, labels.length, () -> {
+			Graph<String> g = w.addTo(factory.get());
+			return () -> {
+				long removed = 0;
+				for (String label : labels) {
+					removed += g.remove(label) ? 1 : 0;
+				}
+				return removed;
+			};
+		});
+
+		// the read-only benchmarks share one graph, built only if one of
+		// them is selected
+		if (!harness.includes("vertices", params) && !harness.includes("sources", params)
+				&& !harness.includes("targets", params)) {
+			return;
+		}
+		Graph<String> g = w.addTo(factory.get());
+		harness.run("vertices", params, VERTICES_QUERIES, () -> () -> {
+			long count = 0;
+			for (int i = 0; i < VERTICES_QUERIES; i++) {
+				for (String v : g.vertices()) {
+					count += v.length();
+				}
+			}
+			return count;
+		});
+		harness.run("sources", params, edges, () -> () -> {
+			long count = 0;
+			for (int i = 0; i < edges; i++) {
+				count += g.sources(labels[to[i]]).size();
+			}
+			return count;
+		});
+		harness.run("targets", params, edges, () -> () -> {
+			long count = 0;
+			for (int i = 0; i < edges; i++) {
+				count += g.targets(labels[from[i]]).size();
+			}
+			return count;
+		});
+	}
+
+}
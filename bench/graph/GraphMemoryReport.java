@@ -0,0 +1,80 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Memory report for the Graph implementations.
+ * 
+ * <p>Builds the same random graph with each implementation and reports the
+ * retained heap per edge, measured as the difference in used heap after a
+ * full collection, and for OffHeapGraph also the direct memory it holds.
+ * Numbers are approximate; run with a fixed heap (e.g.
+ * -Xms2g -Xmx2g) to keep the collector from resizing it in between.
+ * 
+ * <p>Run with: java graph.GraphMemoryReport [edges]
+ */
+public class GraphMemoryReport {
+
+	private static final int AVERAGE_DEGREE = 8;
+
+	// The inputs shared by every measurement, kept reachable from here so
+	// that they can't be collected between a before and an after reading
+	private static Object[] workload;
+
+	public static void main(String[] args) {
+		int edgeCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		int vertexCount = Math.max(2, edgeCount / AVERAGE_DEGREE);
+
+		String[] labels = new String[vertexCount];
+		for (int i = 0; i < vertexCount; i++) {
+			labels[i] = "v" + i;
+		}
+		Random random = new Random(42);
+		int[] from = new int[edgeCount];
+		int[] to = new int[edgeCount];
+		for (int i = 0; i < edgeCount; i++) {
+			from[i] = random.nextInt(vertexCount);
+			to[i] = random.nextInt(vertexCount);
+		}
+
+		workload = new Object[] { labels, from, to };
+
+		System.out.printf("%d edge insertions over %d vertices%n", edgeCount, vertexCount);
+		System.out.printf("%-24s %12s %14s %16s%n", "implementation", "edges", "bytes/edge", "off-heap/edge");
+		report("ConcreteEdgesGraph", ConcreteEdgesGraph::new, labels, from, to);
+		report("ConcreteVerticesGraph", ConcreteVerticesGraph::new, labels, from, to);
+		report("CompactGraph", CompactGraph::new, labels, from, to);
+		report("OffHeapGraph", OffHeapGraph::new, labels, from, to);
+	}
+
+	private static void report(String name, Supplier<Graph<String>> factory, String[] labels, int[] from,
+			int[] to) {
+		long before = usedHeap();
+		Graph<String> graph = factory.get();
+		for (int i = 0; i < from.length; i++) {
+			graph.set(labels[from[i]], labels[to[i]], 1 + (i & 7));
+		}
+		long after = usedHeap();
+
+		long edges = 0;
+		for (String v : graph.vertices()) {
+			edges += graph.targets(v).size();
+		}
+		long offHeap = graph instanceof OffHeapGraph ? ((OffHeapGraph<String>) graph).offHeapBytes() : 0;
+		System.out.printf("%-24s %12d %14.1f %16.1f%n", name, edges, (double) (after - before) / edges,
+				(double) offHeap / edges);
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
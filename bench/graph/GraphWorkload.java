@@ -0,0 +1,89 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A reproducible set of distinct random edges for benchmarking graphs.
+ * Immutable.
+ *
+ * <p>Sources and targets are drawn either uniformly from the vertices, or
+ * from a Zipf distribution with exponent 1, so that, as in a word affinity
+ * graph, a few vertices have most of the edges.
+ */
+final class GraphWorkload {
+
+	/** Vertex labels, "v0", "v1", ... */
+	final String[] labels;
+	/** Labels that are not vertices, for adding */
+	final String[] newLabels;
+	/** The i-th edge is from labels[from[i]] to labels[to[i]]; no duplicates */
+	final int[] from;
+	final int[] to;
+
+	/**
+	 * @param edgeCount number of distinct edges, positive
+	 * @param averageDegree number of edges per vertex, positive
+	 * @param zipf true for Zipf-distributed endpoints, false for uniform
+	 * @param seed seed of the random edges
+	 */
+	GraphWorkload(int edgeCount, int averageDegree, boolean zipf, long seed) {
+		int vertexCount = Math.max(2, edgeCount / averageDegree);
+		labels = new String[vertexCount];
+		newLabels = new String[vertexCount];
+		for (int i = 0; i < vertexCount; i++) {
+			labels[i] = "v" + i;
+			newLabels[i] = "n" + i;
+		}
+
+		Random random = new Random(seed);
+		ZipfDistribution ranks = new ZipfDistribution(vertexCount, zipf ? 1.0 : 0.0);
+		// shuffle the ranks, so that the hot vertices are not the first ones
+		int[] permutation = new int[vertexCount];
+		for (int i = 0; i < vertexCount; i++) {
+			int j = random.nextInt(i + 1);
+			permutation[i] = permutation[j];
+			permutation[j] = i;
+		}
+
+		Set<Long> seen = new HashSet<>();
+		int[] from = new int[edgeCount];
+		int[] to = new int[edgeCount];
+		int n = 0;
+		// the hottest pairs repeat often under Zipf; give up on distinct
+		// edges after a bounded number of draws
+		for (long draws = 0; n < edgeCount && draws < 20L * edgeCount; draws++) {
+			int s = permutation[ranks.sample(random)];
+			int t = permutation[ranks.sample(random)];
+			if (seen.add((long) s * vertexCount + t)) {
+				from[n] = s;
+				to[n] = t;
+				n++;
+			}
+		}
+		this.from = Arrays.copyOf(from, n);
+		this.to = Arrays.copyOf(to, n);
+	}
+
+	/** @return number of edges */
+	int edgeCount() {
+		return from.length;
+	}
+
+	/**
+	 * @param graph a graph
+	 * @return graph, with every edge of this workload set to weight 1
+	 */
+	<G extends Graph<String>> G addTo(G graph) {
+		for (int i = 0; i < from.length; i++) {
+			graph.set(labels[from[i]], labels[to[i]], 1);
+		}
+		return graph;
+	}
+
+}
@@ -0,0 +1,56 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A Zipf distribution over the ranks 0..n-1: rank k is drawn with
+ * probability proportional to 1 / (k + 1)^exponent. With an exponent near 1
+ * this is the distribution of word frequencies in natural-language text, so
+ * a few ranks are drawn very often and most are drawn rarely. Immutable.
+ */
+public final class ZipfDistribution {
+
+	// cumulative[k] = probability of drawing a rank <= k
+	private final double[] cumulative;
+
+	/**
+	 * @param n number of ranks, positive
+	 * @param exponent skew of the distribution, nonnegative; 0 is uniform
+	 */
+	public ZipfDistribution(int n, double exponent) {
+		if (n <= 0 || exponent < 0) {
+			throw new IllegalArgumentException("n " + n + ", exponent " + exponent);
+		}
+		cumulative = new double[n];
+		double sum = 0;
+		for (int k = 0; k < n; k++) {
+			sum += 1 / Math.pow(k + 1, exponent);
+			cumulative[k] = sum;
+		}
+		for (int k = 0; k < n; k++) {
+			cumulative[k] /= sum;
+		}
+	}
+
+	/** @return number of ranks */
+	public int size() {
+		return cumulative.length;
+	}
+
+	/**
+	 * @param random source of randomness
+	 * @return a rank in 0..size()-1, drawn from this distribution
+	 */
+	public int sample(Random random) {
+		int k = Arrays.binarySearch(cumulative, random.nextDouble());
+		// a miss returns -(insertion point) - 1, the first rank whose
+		// cumulative probability is above the drawn one
+		k = k >= 0 ? k : -k - 1;
+		return Math.min(k, cumulative.length - 1);
+	}
+
+}
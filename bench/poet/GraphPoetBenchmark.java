@@ -0,0 +1,152 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.Random;
+
+import graph.ConcreteEdgesGraph;
+
+/**
+ * End-to-end benchmark of GraphPoet on synthetic corpora.
+ *
+ * <p>For corpora of 1 KB, 10 KB, ... up to a maximum size, generated by
+ * {@link SyntheticCorpus}, reports for each way of creating a poet the time
+ * it takes and the peak heap it uses above what was in use before, and then
+ * the latency percentiles of poem() on inputs drawn from the same words,
+ * over as many poems as fit in a time limit.
+ * Corpora are written to a directory once and reused by later runs.
+ *
+ * <p>Corpora of up to 100 KB are also read into a ConcreteEdgesGraph, the
+ * original list-of-edges rep. Its indexes keep it in line with the other
+ * graphs; should they regress to scanning the list, its build and poem
+ * times grow with the number of edges, and this row shows the cliff.
+ *
+ * <p>Peak heap is the sum of the peaks of the heap memory pools, which may
+ * be reached at different times, so it is an upper bound. Run with a heap
+ * large enough for the biggest corpus, and without -ea.
+ *
+ * <p>Run with: java poet.GraphPoetBenchmark [maxBytes [corpusDirectory]]
+ * <p>The default maximum is 100 MB; 1 GB needs a few GB of heap.
+ */
+public class GraphPoetBenchmark {
+
+    private static final long SEED = 42;
+    private static final int WARMUP_POEMS = 2_000;
+    private static final int POEMS = 20_000;
+    // poems get slower as the corpus grows; stop early after these times
+    private static final long WARMUP_NANOS = 2_000_000_000L;
+    private static final long POEM_NANOS = 10_000_000_000L;
+    // Beyond this, a ConcreteEdgesGraph scanning its list would take hours
+    private static final long EDGES_MAX_BYTES = 100_000;
+
+    /** A way of creating a poet from a corpus file. */
+    private interface Builder {
+        GraphPoet build(File corpus) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        long maxBytes = args.length > 0 ? Long.parseLong(args[0]) : 100_000_000;
+        File directory = new File(args.length > 1 ? args[1] : System.getProperty("java.io.tmpdir"));
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%12s %-12s %12s %12s %8s %10s %10s %10s %10s %10s%n", "corpus", "build", "build ms",
+                "peak MB", "poems", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        for (long bytes = 1_000; bytes <= maxBytes; bytes *= 10) {
+            SyntheticCorpus generator = new SyntheticCorpus(bytes, SEED);
+            File corpus = new File(directory, "synthetic-" + SEED + "-" + bytes + ".txt");
+            if (!corpus.isFile() || corpus.length() < bytes) {
+                generator.write(bytes, corpus);
+            }
+            File saved = new File(directory, "synthetic-" + SEED + "-" + bytes + ".graph");
+            saved.deleteOnExit();
+
+            if (bytes <= EDGES_MAX_BYTES) {
+                report(bytes, "edges", f -> new GraphPoet(f, GraphBackend.of(ConcreteEdgesGraph::new)), corpus,
+                        generator);
+            }
+            report(bytes, "sequential", GraphPoet::new, corpus, generator);
+            report(bytes, "parallel", f -> GraphPoet.parallel(f, threads), corpus, generator);
+            report(bytes, "appendable", GraphPoet::appendable, corpus, generator);
+            new GraphPoet(corpus).save(saved);
+            report(bytes, "load", f -> GraphPoet.load(saved), corpus, generator);
+        }
+    }
+
+    private static void report(long bytes, String name, Builder builder, File corpus, SyntheticCorpus generator)
+            throws IOException {
+        long before = usedHeap();
+        resetPeaks();
+        long start = System.nanoTime();
+        GraphPoet poet = builder.build(corpus);
+        long buildNanos = System.nanoTime() - start;
+        long peak = peakHeap() - before;
+
+        Random random = new Random(SEED);
+        String[] inputs = new String[1024];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = generator.line(random);
+        }
+        long[] latencies = new long[POEMS];
+        int count = 0;
+        long sink = 0;
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        for (int i = 0; i < WARMUP_POEMS && System.nanoTime() < warmupEnd; i++) {
+            sink += poet.poem(inputs[i % inputs.length]).length();
+        }
+        long end = System.nanoTime() + POEM_NANOS;
+        while (count < POEMS && System.nanoTime() < end) {
+            long t = System.nanoTime();
+            sink += poet.poem(inputs[count % inputs.length]).length();
+            latencies[count++] = System.nanoTime() - t;
+        }
+        latencies = Arrays.copyOf(latencies, count);
+        Arrays.sort(latencies);
+
+        System.out.printf("%12d %-12s %12.1f %12.1f %8d %10.1f %10.1f %10.1f %10.1f %10.1f%n", bytes, name,
+                buildNanos / 1e6, peak / 1e6, count, percentile(latencies, 0.5), percentile(latencies, 0.9),
+                percentile(latencies, 0.99), percentile(latencies, 0.999), latencies[latencies.length - 1] / 1e3);
+        if (sink == 42) {
+            System.out.println(); // keeps the poems from being optimized away
+        }
+    }
+
+    /** @return the p-th quantile of sorted nanosecond latencies, in microseconds */
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e3;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void resetPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+}
@@ -0,0 +1,232 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load generator for {@link PoemServer}: a number of connections, each
+ * sending its next poem request as soon as the last one is answered, for a
+ * warmup period and then a measured period. Reports the throughput and the
+ * client-side latency percentiles of the measured requests, then the
+ * server's own statistics.
+ *
+ * <p>Without -url, starts a server on the loopback interface serving a
+ * synthetic corpus of -bytes bytes, generated by {@link SyntheticCorpus}
+ * into the temporary directory once and reused by later runs, with
+ * -threads threads, and TCP_NODELAY on like {@link PoemServer#main}.
+ * Inputs are lines of the same synthetic text.
+ *
+ * <p>Run with: java poet.PoemLoadClient [-url URL -corpus NAME]
+ * [-connections N] [-seconds S] [-warmup S] [-bytes B] [-threads T]
+ * <p>Defaults: 16 connections, 10 s measured after 3 s of warmup, a 1 MB
+ * corpus and 4 threads per processor.
+ */
+public class PoemLoadClient {
+
+    private static final long SEED = 42;
+    private static final int INPUTS = 1024;
+    private static final String SYNTHETIC = "synthetic";
+
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        String corpusName = SYNTHETIC;
+        int connections = 16;
+        double seconds = 10;
+        double warmup = 3;
+        long bytes = 1_000_000;
+        int threads = 4 * Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                // an option missing its value
+                usage();
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+            case "-url": url = value; break;
+            case "-corpus": corpusName = value; break;
+            case "-connections": connections = (int) longOption(value, 1, Integer.MAX_VALUE); break;
+            case "-seconds": seconds = secondsOption(value, false); break;
+            case "-warmup": warmup = secondsOption(value, true); break;
+            case "-bytes": bytes = longOption(value, 1, Long.MAX_VALUE); break;
+            case "-threads": threads = (int) longOption(value, 1, Integer.MAX_VALUE); break;
+            default: usage();
+            }
+        }
+        // keep one idle connection per worker alive between its requests
+        System.setProperty("http.maxConnections", String.valueOf(connections));
+
+        SyntheticCorpus generator = new SyntheticCorpus(bytes, SEED);
+        PoemServer server = null;
+        if (url == null) {
+            // as PoemServer.main does, before the first server is created
+            if (System.getProperty(PoemServer.NODELAY) == null) {
+                System.setProperty(PoemServer.NODELAY, "true");
+            }
+            File corpus = new File(System.getProperty("java.io.tmpdir"), "synthetic-" + SEED + "-" + bytes + ".txt");
+            if (!corpus.isFile() || corpus.length() < bytes) {
+                generator.write(bytes, corpus);
+            }
+            server = new PoemServer(Collections.singletonMap(SYNTHETIC, new GraphPoet(corpus)),
+                    new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), threads);
+            server.start();
+            url = "http://" + server.address().getHostString() + ":" + server.address().getPort();
+            System.out.printf("server: %d threads, corpus %d bytes, at %s%n", threads, bytes, url);
+        }
+
+        Random random = new Random(SEED);
+        List<byte[]> inputs = new ArrayList<>();
+        for (int i = 0; i < INPUTS; i++) {
+            inputs.add(generator.line(random).getBytes(StandardCharsets.UTF_8));
+        }
+
+        URL poemUrl = new URL(url + "/poem/" + corpusName);
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long measureStart = start + (long) (warmup * 1e9);
+        long end = measureStart + (long) (seconds * 1e9);
+        List<Thread> workers = new ArrayList<>();
+        for (int c = 0; c < connections; c++) {
+            int first = c;
+            Thread worker = new Thread(() -> {
+                for (int i = first; ; i++) {
+                    long t = System.nanoTime();
+                    if (t >= end) {
+                        return;
+                    }
+                    boolean ok = post(poemUrl, inputs.get(i % INPUTS));
+                    long done = System.nanoTime();
+                    if (t >= measureStart && done <= end) {
+                        if (ok) {
+                            latency.record(done - t);
+                        } else {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            }, "load-" + c);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        System.out.printf("%d connections, %.1f s: %d poems, %d errors, %.1f poems/s%n", connections, seconds,
+                latency.count(), errors.get(), latency.count() / seconds);
+        System.out.println("client latency: " + latency);
+        System.out.print("server stats:\n" + get(new URL(url + "/stats")));
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    /**
+     * Parse the value of a whole-number option of main(), calling usage()
+     * if it is not a number in range.
+     *
+     * @param value value given on the command line
+     * @param min least allowed value
+     * @param max greatest allowed value, at least min
+     * @return value as a long in [min, max]
+     */
+    private static long longOption(String value, long min, long max) {
+        try {
+            long n = Long.parseLong(value);
+            if (n >= min && n <= max) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // not a number; fall through to usage()
+        }
+        usage();
+        throw new AssertionError("usage() returned");
+    }
+
+    /**
+     * Parse the value of a duration option of main(), calling usage() if it
+     * is not a finite number of seconds in range.
+     *
+     * @param value value given on the command line
+     * @param zeroAllowed whether 0 is allowed as well as positive durations
+     * @return value as a finite number of seconds, positive or, if
+     *         zeroAllowed, 0
+     */
+    private static double secondsOption(String value, boolean zeroAllowed) {
+        try {
+            double s = Double.parseDouble(value);
+            if (Double.isFinite(s) && (s > 0 || (zeroAllowed && s == 0))) {
+                return s;
+            }
+        } catch (NumberFormatException e) {
+            // not a number; fall through to usage()
+        }
+        usage();
+        throw new AssertionError("usage() returned");
+    }
+
+    /** Print the command line of main() and exit with status 2. */
+    private static void usage() {
+        System.err.println("usage: java poet.PoemLoadClient [-url URL -corpus NAME] [-connections N] [-seconds S]"
+                + " [-warmup S] [-bytes B] [-threads T]");
+        System.exit(2);
+    }
+
+    /** @return true iff the poem of input was received from url */
+    private static boolean post(URL url, byte[] input) {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(input.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(input);
+            }
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                drain(connection.getErrorStream());
+                return false;
+            }
+            drain(connection.getInputStream());
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static String get(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        return new String(drain(connection.getInputStream()), StandardCharsets.UTF_8);
+    }
+
+    /** Read a response body to its end and close it, so its connection can be reused. */
+    private static byte[] drain(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (in == null) {
+            return bytes.toByteArray();
+        }
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[4096];
+            for (int n; (n = stream.read(buffer)) > 0;) {
+                bytes.write(buffer, 0, n);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+}
@@ -0,0 +1,156 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import graph.ZipfDistribution;
+
+/**
+ * A generator of synthetic English-like text, for benchmarking poets on
+ * corpora of any size.
+ *
+ * <p>Words are drawn from a Zipf distribution with exponent 1.07, like the
+ * words of natural-language text, from a vocabulary that grows with the
+ * length of the text by Heaps' law (about 30 * sqrt(words) distinct words).
+ * The more frequent a word is, the shorter it is. The text is split into
+ * lines of 5 to 15 words; some words are capitalized or followed by
+ * punctuation. The same seed and size always give the same text. Immutable.
+ *
+ * <p>Run with: java poet.SyntheticCorpus bytes file [seed]
+ */
+public final class SyntheticCorpus {
+
+    private static final double EXPONENT = 1.07;
+    private static final double AVERAGE_WORD_BYTES = 6;
+    private static final String[] SYLLABLES = {
+        "a", "e", "i", "o", "u", "ba", "de", "ti", "lo", "mu", "ka", "ne", "ri", "so", "ven",
+        "tha", "wor", "gle", "pri", "st", "ly", "ck", "mp", "nd", "sh",
+    };
+    private static final String[] PUNCTUATION = { ",", ".", ";", "!", "?" };
+
+    private final String[] vocabulary;
+    private final ZipfDistribution ranks;
+    private final long seed;
+
+    /*	Abstraction function:
+     * 		The text generator over the words of vocabulary, drawn by ranks,
+     * 		with the random choices made from seed
+     */
+
+    /*	Representation invariant:
+     * 		vocabulary has distinct non-empty words of letters, and
+     * 		ranks.size() == vocabulary.length
+     */
+
+    /*	Safety from rep exposure:
+     * 		All fields are private, and the arrays are never returned
+     */
+
+    /**
+     * Create a generator for texts of about a given size.
+     *
+     * @param bytes approximate length of the texts in bytes, positive
+     * @param seed seed of the random choices
+     */
+    public SyntheticCorpus(long bytes, long seed) {
+        long words = Math.max(1, (long) (bytes / AVERAGE_WORD_BYTES));
+        int size = (int) Math.min(1_000_000, Math.max(10, 30 * Math.sqrt(words)));
+        vocabulary = new String[size];
+        for (int rank = 0; rank < size; rank++) {
+            vocabulary[rank] = word(rank);
+        }
+        ranks = new ZipfDistribution(size, EXPONENT);
+        this.seed = seed;
+    }
+
+    /** @return number of distinct words the text is drawn from */
+    public int vocabularySize() {
+        return vocabulary.length;
+    }
+
+    /**
+     * Write a text to a file.
+     *
+     * @param bytes number of bytes to write, at least; the text ends at the
+     *        end of the line that reaches it
+     * @param file file to write, replacing any content
+     * @throws IOException if the file cannot be written
+     */
+    public void write(long bytes, File file) throws IOException {
+        Random random = new Random(seed);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file),
+                StandardCharsets.US_ASCII), 1 << 16)) {
+            long written = 0;
+            while (written < bytes) {
+                String line = line(random);
+                out.write(line);
+                out.write('\n');
+                written += line.length() + 1;
+            }
+        }
+    }
+
+    /**
+     * Generate a line of text, such as a poem input.
+     *
+     * @param random source of the random choices
+     * @return a line of 5 to 15 words separated by single spaces
+     */
+    public String line(Random random) {
+        StringBuilder line = new StringBuilder();
+        int words = 5 + random.nextInt(11);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                line.append(' ');
+            }
+            String word = vocabulary[ranks.sample(random)];
+            if (i == 0 || random.nextInt(20) == 0) {
+                line.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            } else {
+                line.append(word);
+            }
+            if (random.nextInt(12) == 0) {
+                line.append(PUNCTUATION[random.nextInt(PUNCTUATION.length)]);
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * @param rank a rank
+     * @return the word with rank, spelled with the digits of rank in base
+     *         SYLLABLES.length; since no syllable is a prefix of another,
+     *         different ranks have different words
+     */
+    private static String word(int rank) {
+        StringBuilder word = new StringBuilder();
+        int n = rank;
+        do {
+            word.append(SYLLABLES[n % SYLLABLES.length]);
+            n /= SYLLABLES.length;
+        } while (n > 0);
+        return word.toString();
+    }
+
+    /**
+     * Write a synthetic corpus file.
+     *
+     * @param args bytes, file name, and optionally seed (default 42)
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        long bytes = Long.parseLong(args[0]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        new SyntheticCorpus(bytes, seed).write(bytes, new File(args[1]));
+    }
+
+}
@@ -0,0 +1,30 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+/**
+ * A graph that can find the paths of two edges between two vertices without
+ * looking up every target of the first vertex by label, for instance by
+ * merging two rows of edges sorted by vertex id.
+ *
+ * <p>Graphs that wrap another graph may implement this interface by
+ * delegating to a wrapped BridgeGraph.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public interface BridgeGraph<L> extends Graph<L> {
+
+	/**
+	 * Visit every path of two edges from a source vertex to a target vertex.
+	 * The visitor must not modify this graph.
+	 *
+	 * @param source a label
+	 * @param target a label
+	 * @param visitor called once for every vertex b with edges source -> b
+	 *        and b -> target, with the weights of both edges, in no
+	 *        particular order
+	 */
+	public void forEachBridge(L source, L target, BridgeVisitor<? super L> visitor);
+
+}
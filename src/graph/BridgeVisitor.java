@@ -0,0 +1,25 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+/**
+ * A callback that receives the paths of two edges between two vertices, one
+ * at a time.
+ *
+ * @param <L> type of vertex labels in the graph being searched
+ * @see BridgeGraph#forEachBridge(Object, Object, BridgeVisitor)
+ */
+@FunctionalInterface
+public interface BridgeVisitor<L> {
+
+	/**
+	 * Visit one path of two edges.
+	 *
+	 * @param bridge label of the vertex in the middle of the path
+	 * @param first (nonzero) weight of the edge into bridge
+	 * @param second (nonzero) weight of the edge out of bridge
+	 */
+	public void visit(L bridge, int first, int second);
+
+}
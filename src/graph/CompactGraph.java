@@ -0,0 +1,319 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A memory-compact implementation of Graph.
+ *
+ * <p>Labels are interned to dense int ids when they are first added. Edge
+ * weights live in a primitive open-addressing table keyed by the pair of ids,
+ * and the neighbours of every vertex are kept in growable int arrays, so
+ * setting or reading an edge never boxes. Updating an existing edge is O(1);
+ * removing an edge is O(degree) of its endpoints.
+ *
+ * <p>Graphs created over a shared {@link SymbolTable} take their vertex ids
+ * and label instances from it, so equal labels in several graphs are stored
+ * once and have the same id everywhere.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class CompactGraph<L> implements Graph<L> {
+
+	private static final int[] NO_NEIGHBOURS = new int[0];
+
+	private final VertexIds<L> ids;
+	private final EdgeWeightTable weights = new EdgeWeightTable();
+
+	// Indexed by vertex id: ids of targets of edges out of / sources of edges
+	// into that vertex, and how many entries of each array are in use.
+	private int[][] out = new int[0][];
+	private int[] outDegree = new int[0];
+	private int[][] in = new int[0][];
+	private int[] inDegree = new int[0];
+
+	// Abstraction function:
+	// AF(r) = a graph whose vertices are the labels of ids, with an edge from
+	// ids.label(s) to ids.label(t) of weight w for every (s, t) -> w in
+	// weights
+	// Representation invariant:
+	// - out, outDegree, in and inDegree are indexed by id and have the same
+	// length, at least ids.limit(); rows of ids without a vertex are empty
+	// - t is in out[s][0..outDegree[s]) exactly once iff weights has an
+	// edge (s, t), and likewise s is in in[t][0..inDegree[t]) exactly once
+	// Safety from rep exposure:
+	// - all fields are private; vertices() is an unmodifiable view and
+	// sources()/targets() return new maps
+	// - labels are immutable
+
+	/** Create an empty graph with its own vertex ids. */
+	public CompactGraph() {
+		this(null);
+	}
+
+	/**
+	 * Create an empty graph whose vertex ids and labels come from a symbol
+	 * table, which may be shared with other graphs. The graph's arrays are
+	 * sized by the largest id among its vertices.
+	 *
+	 * @param symbols table to intern vertex labels in, or null for ids
+	 *        private to this graph
+	 */
+	public CompactGraph(SymbolTable<L> symbols) {
+		ids = new VertexIds<>(symbols);
+	}
+
+	private void checkRep() {
+		assert ids.isConsistent();
+		assert out.length >= ids.limit() && in.length == out.length;
+	}
+
+	@Override
+	public boolean add(L vertex) {
+		if (ids.find(vertex) >= 0) {
+			return false;
+		}
+		intern(vertex);
+		checkRep();
+		return true;
+	}
+
+	@Override
+	public int set(L source, L target, int weight) {
+		if (weight < 0) {
+			return 0;
+		}
+		if (weight == 0) {
+			int s = ids.find(source);
+			int t = ids.find(target);
+			if (s < 0 || t < 0) {
+				return 0;
+			}
+			int previous = weights.put(s, t, 0);
+			if (previous != 0) {
+				unlink(s, t);
+			}
+			checkRep();
+			return previous;
+		}
+		int s = intern(source);
+		int t = intern(target);
+		int previous = weights.put(s, t, weight);
+		if (previous == 0) {
+			link(s, t);
+		}
+		checkRep();
+		return previous;
+	}
+
+	@Override
+	public int increment(L source, L target, int delta) {
+		if (delta <= 0) {
+			int s = ids.find(source);
+			int t = ids.find(target);
+			if (s < 0 || t < 0) {
+				return 0;
+			}
+			int previous = weights.get(s, t);
+			int weight = weights.add(s, t, delta);
+			if (previous != 0 && weight == 0) {
+				unlink(s, t);
+			}
+			checkRep();
+			return weight;
+		}
+		int s = intern(source);
+		int t = intern(target);
+		int weight = weights.add(s, t, delta);
+		if (weight == delta) {
+			link(s, t);
+		}
+		checkRep();
+		return weight;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The weight table is grown once, up front, to hold an edge for every
+	 * change, rather than doubling as the changes add edges.
+	 */
+	@Override
+	public void incrementAll(EdgeBatch<? extends L> batch) {
+		weights.reserve(batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			increment(batch.source(i), batch.target(i), batch.delta(i));
+		}
+	}
+
+	@Override
+	public boolean remove(L vertex) {
+		int v = ids.remove(vertex);
+		if (v < 0) {
+			return false;
+		}
+		for (int i = 0; i < outDegree[v]; i++) {
+			int t = out[v][i];
+			weights.put(v, t, 0);
+			if (t != v) {
+				removeFrom(in, inDegree, t, v);
+			}
+		}
+		for (int i = 0; i < inDegree[v]; i++) {
+			int s = in[v][i];
+			if (s != v) {
+				weights.put(s, v, 0);
+				removeFrom(out, outDegree, s, v);
+			}
+		}
+		out[v] = NO_NEIGHBOURS;
+		outDegree[v] = 0;
+		in[v] = NO_NEIGHBOURS;
+		inDegree[v] = 0;
+		checkRep();
+		return true;
+	}
+
+	@Override
+	public Set<L> vertices() {
+		return ids.labels();
+	}
+
+	@Override
+	public Map<L, Integer> sources(L target) {
+		Map<L, Integer> sources = new HashMap<>();
+		int t = ids.find(target);
+		if (t >= 0) {
+			for (int i = 0; i < inDegree[t]; i++) {
+				int s = in[t][i];
+				sources.put(ids.label(s), weights.get(s, t));
+			}
+		}
+		return sources;
+	}
+
+	@Override
+	public Map<L, Integer> targets(L source) {
+		Map<L, Integer> targets = new HashMap<>();
+		int s = ids.find(source);
+		if (s >= 0) {
+			for (int i = 0; i < outDegree[s]; i++) {
+				int t = out[s][i];
+				targets.put(ids.label(t), weights.get(s, t));
+			}
+		}
+		return targets;
+	}
+
+	@Override
+	public int weight(L source, L target) {
+		int s = ids.find(source);
+		int t = ids.find(target);
+		return s < 0 || t < 0 ? 0 : weights.get(s, t);
+	}
+
+	@Override
+	public void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+		int s = ids.find(source);
+		if (s >= 0) {
+			for (int i = 0; i < outDegree[s]; i++) {
+				int t = out[s][i];
+				visitor.visit(ids.label(t), weights.get(s, t));
+			}
+		}
+	}
+
+	@Override
+	public void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+		int t = ids.find(target);
+		if (t >= 0) {
+			for (int i = 0; i < inDegree[t]; i++) {
+				int s = in[t][i];
+				visitor.visit(ids.label(s), weights.get(s, t));
+			}
+		}
+	}
+
+	/**
+	 * Estimate the memory used by this graph's primitive edge storage: the
+	 * weight table and the neighbour arrays, including unused capacity.
+	 *
+	 * @return approximate number of bytes used to store edges
+	 */
+	public long edgeFootprint() {
+		long bytes = weights.footprint();
+		for (int v = 0; v < ids.limit(); v++) {
+			bytes += (out[v].length + in[v].length) * (long) Integer.BYTES;
+		}
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%s@{", getClass().getName()));
+		for (int s = 0; s < ids.limit(); s++) {
+			for (int i = 0; i < outDegree[s]; i++) {
+				int t = out[s][i];
+				sb.append(String.format("%s-%d->%s, ", ids.label(s), weights.get(s, t), ids.label(t)));
+			}
+		}
+		return sb.append("}").toString();
+	}
+
+	/** Returns the id of label, adding it as a vertex if it is not one yet. */
+	private int intern(L label) {
+		int limit = ids.limit();
+		int id = ids.intern(label);
+		if (ids.limit() > out.length) {
+			int capacity = Math.max(16, Math.max(ids.limit(), out.length * 2));
+			out = Arrays.copyOf(out, capacity);
+			outDegree = Arrays.copyOf(outDegree, capacity);
+			in = Arrays.copyOf(in, capacity);
+			inDegree = Arrays.copyOf(inDegree, capacity);
+		}
+		for (int v = limit; v < ids.limit(); v++) {
+			out[v] = NO_NEIGHBOURS;
+			in[v] = NO_NEIGHBOURS;
+		}
+		return id;
+	}
+
+	private void link(int s, int t) {
+		appendTo(out, outDegree, s, t);
+		appendTo(in, inDegree, t, s);
+	}
+
+	private void unlink(int s, int t) {
+		removeFrom(out, outDegree, s, t);
+		removeFrom(in, inDegree, t, s);
+	}
+
+	private static void appendTo(int[][] lists, int[] degrees, int v, int neighbour) {
+		int[] list = lists[v];
+		if (degrees[v] == list.length) {
+			list = Arrays.copyOf(list, Math.max(2, list.length * 2));
+			lists[v] = list;
+		}
+		list[degrees[v]++] = neighbour;
+	}
+
+	private static void removeFrom(int[][] lists, int[] degrees, int v, int neighbour) {
+		int[] list = lists[v];
+		int last = degrees[v] - 1;
+		for (int i = 0; i <= last; i++) {
+			if (list[i] == neighbour) {
+				list[i] = list[last];
+				degrees[v] = last;
+				return;
+			}
+		}
+		assert false : "neighbour not found";
+	}
+
+}
@@ -22,17 +22,35 @@ public class ConcreteEdgesGraph implements Graph<String> {
 	private final Set<String> vertices = new HashSet<>();
 	private final List<Edge> edges = new ArrayList<>();
 
+	// Secondary indexes into edges: source -> target -> slot and
+	// target -> source -> slot, where slot is the position of the edge in
+	// the edges list.
+	private final Map<String, Map<String, Integer>> slotsBySource = new HashMap<>();
+	private final Map<String, Map<String, Integer>> slotsByTarget = new HashMap<>();
+
+	// Number of null slots left in edges by removed edges.
+	private int holes = 0;
+
 	// Abstraction function:
 	// Represents a graph with a set of vertices connected to each other
-	// by weighted edges.
+	// by weighted edges. The edges of the graph are the non-null elements
+	// of edges, in the order they were first added.
 	// Representation invariant:
-	//
+	// - 0 <= holes <= edges.size(), and exactly holes elements of edges are
+	// null
+	// - for every non-null edge e at slot i, both vertices of e are in
+	// vertices, slotsBySource[e.from][e.to] == i and
+	// slotsByTarget[e.to][e.from] == i
+	// - the indexes contain no other entries, and no empty inner maps
 	// Safety from rep exposure:
 	// all members are private and final
 	// vertices and edges are mutable (sets and edges) but the values contained
 	// within are of immutable type (Edge and String)
+	// the indexes are never returned; sources() and targets() return new maps
 
-	// TODO checkRep
+	private void checkRep() {
+		assert holes >= 0 && holes <= edges.size();
+	}
 
 	@Override
 	public boolean add(String vertex) {
@@ -41,50 +59,85 @@ public class ConcreteEdgesGraph implements Graph<String> {
 
 	@Override
 	public int set(String source, String target, int weight) {
+		checkRep();
 		if (weight < 0) {
 			return 0;
 		}
 
-		int edgeIndex = -1;
+		Integer slot = slotOf(source, target);
 		int p_weight = 0;
 
-		for (int i = 0; i < edges.size(); i++) {
-			Edge e = edges.get(i);
-			if (e.getFrom().equals(source) && e.getTo().equals(target)) {
-				edgeIndex = i;
-			}
-		}
-
 		if (weight > 0) {
 			Edge newEdge = new Edge(source, target, weight);
-			if (edgeIndex < 0) {
+			if (slot == null) {
 				add(source);
 				add(target);
+				index(source, target, edges.size());
 				edges.add(newEdge);
 			} else {
-				Edge previousEdge = edges.set(edgeIndex, newEdge);
+				Edge previousEdge = edges.set(slot, newEdge);
 				p_weight = previousEdge.getWeight();
 			}
-		} else if (weight == 0 && edgeIndex >= 0) {
-			Edge previousEdge = edges.remove(edgeIndex);
-			p_weight = previousEdge.getWeight();
+		} else if (slot != null) {
+			unindex(source, target);
+			p_weight = clearSlot(slot);
+			compactIfSparse();
 		}
 
+		checkRep();
 		return p_weight;
 
 	}
 
+	@Override
+	public int increment(String source, String target, int delta) {
+		checkRep();
+		Integer slot = slotOf(source, target);
+		int weight = Math.max(0, Math.addExact(slot == null ? 0 : edges.get(slot).getWeight(), delta));
+
+		if (weight > 0) {
+			Edge newEdge = new Edge(source, target, weight);
+			if (slot == null) {
+				add(source);
+				add(target);
+				index(source, target, edges.size());
+				edges.add(newEdge);
+			} else {
+				edges.set(slot, newEdge);
+			}
+		} else if (slot != null) {
+			unindex(source, target);
+			clearSlot(slot);
+			compactIfSparse();
+		}
+
+		checkRep();
+		return weight;
+	}
+
 	@Override
 	public boolean remove(String vertex) {
+		checkRep();
 		boolean vertexExists = vertices.contains(vertex);
 
 		if (vertexExists) {
 			vertices.remove(vertex);
-			for (int i = 0; i < edges.size(); i++) {
-				if (edges.get(i).getFrom().equals(vertex) || edges.get(i).getTo().equals(vertex)) {
-					edges.remove(i);
+			Map<String, Integer> outgoing = slotsBySource.remove(vertex);
+			if (outgoing != null) {
+				for (Map.Entry<String, Integer> e : outgoing.entrySet()) {
+					removeIndexEntry(slotsByTarget, e.getKey(), vertex);
+					clearSlot(e.getValue());
+				}
+			}
+			Map<String, Integer> incoming = slotsByTarget.remove(vertex);
+			if (incoming != null) {
+				for (Map.Entry<String, Integer> e : incoming.entrySet()) {
+					removeIndexEntry(slotsBySource, e.getKey(), vertex);
+					clearSlot(e.getValue());
 				}
 			}
+			compactIfSparse();
+			checkRep();
 			return true;
 		} else {
 			return false;
@@ -99,9 +152,10 @@ public class ConcreteEdgesGraph implements Graph<String> {
 	@Override
 	public Map<String, Integer> sources(String target) {
 		Map<String, Integer> sourceMap = new HashMap<String, Integer>();
-		for (Edge e : edges) {
-			if (e.getTo().equals(target)) {
-				sourceMap.put(e.getFrom(), e.getWeight());
+		Map<String, Integer> incoming = slotsByTarget.get(target);
+		if (incoming != null) {
+			for (Map.Entry<String, Integer> e : incoming.entrySet()) {
+				sourceMap.put(e.getKey(), edges.get(e.getValue()).getWeight());
 			}
 		}
 		return sourceMap;
@@ -110,25 +164,110 @@ public class ConcreteEdgesGraph implements Graph<String> {
 	@Override
 	public Map<String, Integer> targets(String source) {
 		Map<String, Integer> targetMap = new HashMap<String, Integer>();
-		for (Edge e : edges) {
-			if (e.getFrom().equals(source)) {
-				targetMap.put(e.getTo(), e.getWeight());
+		Map<String, Integer> outgoing = slotsBySource.get(source);
+		if (outgoing != null) {
+			for (Map.Entry<String, Integer> e : outgoing.entrySet()) {
+				targetMap.put(e.getKey(), edges.get(e.getValue()).getWeight());
 			}
 		}
 		return targetMap;
 	}
 
+	@Override
+	public int weight(String source, String target) {
+		Integer slot = slotOf(source, target);
+		return slot == null ? 0 : edges.get(slot).getWeight();
+	}
+
+	@Override
+	public void forEachTarget(String source, EdgeVisitor<? super String> visitor) {
+		Map<String, Integer> outgoing = slotsBySource.get(source);
+		if (outgoing != null) {
+			for (Map.Entry<String, Integer> e : outgoing.entrySet()) {
+				visitor.visit(e.getKey(), edges.get(e.getValue()).getWeight());
+			}
+		}
+	}
+
+	@Override
+	public void forEachSource(String target, EdgeVisitor<? super String> visitor) {
+		Map<String, Integer> incoming = slotsByTarget.get(target);
+		if (incoming != null) {
+			for (Map.Entry<String, Integer> e : incoming.entrySet()) {
+				visitor.visit(e.getKey(), edges.get(e.getValue()).getWeight());
+			}
+		}
+	}
+
 	// toString()
 	@Override
 	public String toString() {
-		if (edges.isEmpty()) {
+		if (edges.size() == holes) {
 			return "Empty Graph";
 		}
-		String str = "";
+		StringBuilder str = new StringBuilder();
 		for (Edge e : edges) {
-			str += e.toString() + " --- ";
+			if (e != null) {
+				str.append(e.toString()).append(" --- ");
+			}
+		}
+		return str.toString();
+	}
+
+	/** Returns the slot of the edge from source to target, or null if absent. */
+	private Integer slotOf(String source, String target) {
+		Map<String, Integer> outgoing = slotsBySource.get(source);
+		return outgoing == null ? null : outgoing.get(target);
+	}
+
+	/** Records that the edge from source to target lives at slot. */
+	private void index(String source, String target, int slot) {
+		slotsBySource.computeIfAbsent(source, k -> new HashMap<>()).put(target, slot);
+		slotsByTarget.computeIfAbsent(target, k -> new HashMap<>()).put(source, slot);
+	}
+
+	/** Forgets the edge from source to target in both indexes. */
+	private void unindex(String source, String target) {
+		removeIndexEntry(slotsBySource, source, target);
+		removeIndexEntry(slotsByTarget, target, source);
+	}
+
+	private static void removeIndexEntry(Map<String, Map<String, Integer>> index, String outer, String inner) {
+		Map<String, Integer> slots = index.get(outer);
+		if (slots != null) {
+			slots.remove(inner);
+			if (slots.isEmpty()) {
+				index.remove(outer);
+			}
+		}
+	}
+
+	/** Nulls out an occupied slot and returns the weight of the edge it held. */
+	private int clearSlot(int slot) {
+		Edge previousEdge = edges.set(slot, null);
+		holes++;
+		return previousEdge.getWeight();
+	}
+
+	/**
+	 * Squeezes the holes out of edges once they make up more than half of it,
+	 * so removals stay O(1) amortized while the edge order is preserved.
+	 */
+	private void compactIfSparse() {
+		if (holes <= edges.size() / 2) {
+			return;
+		}
+		int live = 0;
+		for (int i = 0; i < edges.size(); i++) {
+			Edge e = edges.get(i);
+			if (e != null) {
+				edges.set(live, e);
+				index(e.getFrom(), e.getTo(), live);
+				live++;
+			}
 		}
-		return str;
+		edges.subList(live, edges.size()).clear();
+		holes = 0;
 	}
 
 }
@@ -21,6 +21,9 @@ public class ConcreteVerticesGraph implements Graph<String> {
 
 	private final List<Vertex> vertices = new ArrayList<>();
 
+	// Index of the same vertices by name, so lookups don't walk the list
+	private final Map<String, Vertex> verticesByName = new HashMap<>();
+
 	// Abstraction function:
 	// AF(r) = an ordered pair (V, E)
 	// where V = { all v in r.vertices }
@@ -28,7 +31,10 @@ public class ConcreteVerticesGraph implements Graph<String> {
 	// and there exists a W such that W(v, v') = v.getEdgeTo(v') for all (v, v') in
 	// E.
 	// Representation invariant:
-	// - Any graph with v vertices will have at most v(v-1) edges
+	// - Any graph with v vertices will have at most v*v edges, self loops
+	// included
+	// - verticesByName maps the name of every vertex in vertices to that
+	// vertex, and has no other entries
 	// Safety from rep exposure:
 	// - mutable Vertex class is never exposed in public methods
 	// - non-primitive types aren't returned by reference where
@@ -40,17 +46,12 @@ public class ConcreteVerticesGraph implements Graph<String> {
 		int nEdges = 0;
 		for (Vertex v : vertices)
 			nEdges += v.getOutwardEdges().size();
-		return nEdges <= vertices.size() * (vertices.size() - 1);
+		return nEdges <= vertices.size() * vertices.size() && verticesByName.size() == vertices.size();
 	}
 
 	private Vertex getVertexByName(String name) {
 		assert checkRep();
-		for (Vertex v : vertices) {
-			if (v.getName().equals(name))
-				return v;
-		}
-
-		return null;
+		return verticesByName.get(name);
 	}
 
 	private Vertex ensureVertexByName(String name) {
@@ -64,6 +65,7 @@ public class ConcreteVerticesGraph implements Graph<String> {
 	private Vertex createVertex(String name) {
 		Vertex v = new Vertex(name);
 		vertices.add(v);
+		verticesByName.put(name, v);
 		return v;
 	}
 
@@ -72,7 +74,7 @@ public class ConcreteVerticesGraph implements Graph<String> {
 		assert checkRep();
 		if (getVertexByName(vertex) != null)
 			return false;
-		vertices.add(new Vertex(vertex));
+		createVertex(vertex);
 		return true;
 	}
 
@@ -85,6 +87,25 @@ public class ConcreteVerticesGraph implements Graph<String> {
 		return s.setEdgeTo(t, weight);
 	}
 
+	@Override
+	public int increment(String source, String target, int delta) {
+		assert checkRep();
+		Vertex s = getVertexByName(source);
+		Vertex t = getVertexByName(target);
+		int previous = s == null || t == null ? 0 : s.getEdgeTo(t);
+		int weight = Math.max(0, Math.addExact(previous, delta));
+		if (weight == previous)
+			return weight;
+		if (weight > 0) {
+			if (s == null)
+				s = createVertex(source);
+			if (t == null)
+				t = source.equals(target) ? s : createVertex(target);
+		}
+		s.setEdgeTo(t, weight);
+		return weight;
+	}
+
 	@Override
 	public boolean remove(String vertex) {
 		assert checkRep();
@@ -92,10 +113,13 @@ public class ConcreteVerticesGraph implements Graph<String> {
 		if (v == null)
 			return false;
 		vertices.remove(v);
+		verticesByName.remove(vertex);
 
-		// Get rid of any edges pointing to v
-		for (Vertex source : vertices)
+		// Get rid of any edges pointing to or from v
+		for (Vertex source : v.getInwardEdges().keySet())
 			source.setEdgeTo(v, 0);
+		for (Vertex target : v.getTargets())
+			v.setEdgeTo(target, 0);
 
 		return true;
 	}
@@ -114,14 +138,11 @@ public class ConcreteVerticesGraph implements Graph<String> {
 	public Map<String, Integer> sources(String target) {
 		assert checkRep();
 		Map<String, Integer> sources = new HashMap<>();
-		for (Vertex v : vertices) {
-			Vertex t = getVertexByName(target);
-			if (t == null)
-				return sources;
-			int edgeValue = v.getEdgeTo(getVertexByName(target));
-			if (edgeValue != 0)
-				sources.put(v.getName(), edgeValue);
-		}
+		Vertex t = getVertexByName(target);
+		if (t == null)
+			return sources;
+		for (Map.Entry<Vertex, Integer> e : t.getInwardEdges().entrySet())
+			sources.put(e.getKey().getName(), e.getValue());
 		return sources;
 	}
 
@@ -137,6 +158,32 @@ public class ConcreteVerticesGraph implements Graph<String> {
 		return targets;
 	}
 
+	@Override
+	public int weight(String source, String target) {
+		assert checkRep();
+		Vertex s = getVertexByName(source);
+		Vertex t = getVertexByName(target);
+		if (s == null || t == null)
+			return 0;
+		return s.getEdgeTo(t);
+	}
+
+	@Override
+	public void forEachTarget(String source, EdgeVisitor<? super String> visitor) {
+		assert checkRep();
+		Vertex v = getVertexByName(source);
+		if (v != null)
+			v.visitOutwardEdges(visitor);
+	}
+
+	@Override
+	public void forEachSource(String target, EdgeVisitor<? super String> visitor) {
+		assert checkRep();
+		Vertex v = getVertexByName(target);
+		if (v != null)
+			v.visitInwardEdges(visitor);
+	}
+
 	@Override
 	public String toString() {
 		assert checkRep();
@@ -154,14 +201,18 @@ public class ConcreteVerticesGraph implements Graph<String> {
  * is internal to the rep of ConcreteVerticesGraph.
  * 
  * Internally, it stores a map of the vertices to which it has edges (and the
- * weight of that edge). Vertex doesn't know about any edges originating from
- * other vertices, even if they point to it.
+ * weight of that edge), and a mirror map of the vertices which have edges to
+ * it. The mirror is kept up to date by setEdgeTo, so edges must only be
+ * changed through that method.
  */
 class Vertex {
 
 	// Refers to edges leading away from this vertex ONLY.
 	private Map<Vertex, Integer> edges;
 
+	// Refers to edges leading into this vertex, keyed by their source.
+	private final Map<Vertex, Integer> inEdges;
+
 	// The name of the vertex (can't be changed once assigned)
 	private final String name;
 
@@ -173,13 +224,16 @@ class Vertex {
 	// Representation invariant:
 	// No edge should ever point to a null Vertex - i.e. the
 	// 'edges' map should never contain dangling references
+	// For every (t, w) in edges, t.inEdges contains (this, w), and for every
+	// (s, w) in inEdges, s.edges contains (this, w)
 	//
 	// Safety from rep exposure:
-	// Always returns a copy of the edges map
+	// Always returns a copy of the edges and inEdges maps
 
 	public Vertex(String name) {
 		this.name = name;
 		this.edges = new HashMap<Vertex, Integer>();
+		this.inEdges = new HashMap<Vertex, Integer>();
 	}
 
 	private boolean checkRep() {
@@ -206,14 +260,18 @@ class Vertex {
 	public int setEdgeTo(Vertex target, int weight) {
 		assert checkRep();
 		if (edges.containsKey(target)) {
-			if (weight == 0)
+			if (weight == 0) {
+				target.inEdges.remove(this);
 				return edges.remove(target);
-			else
+			} else {
+				target.inEdges.put(this, weight);
 				return edges.put(target, weight);
+			}
 		}
 		// new target
 		if (weight != 0) {
 			edges.put(target, weight);
+			target.inEdges.put(this, weight);
 		}
 		return 0;
 	}
@@ -236,6 +294,41 @@ class Vertex {
 		return new HashMap<Vertex, Integer>(edges);
 	}
 
+	/**
+	 * Get the edges leading into this vertex.
+	 * 
+	 * @return a copy of the map from each source vertex to the weight of its
+	 *         edge to this vertex
+	 */
+	public Map<Vertex, Integer> getInwardEdges() {
+		assert checkRep();
+		return new HashMap<Vertex, Integer>(inEdges);
+	}
+
+	/**
+	 * Visit the edges leading away from this vertex without copying them.
+	 * 
+	 * @param visitor called with the name of each target and the weight of
+	 *        the edge to it; must not change the edges of any vertex
+	 */
+	public void visitOutwardEdges(EdgeVisitor<? super String> visitor) {
+		assert checkRep();
+		for (Map.Entry<Vertex, Integer> e : edges.entrySet())
+			visitor.visit(e.getKey().getName(), e.getValue());
+	}
+
+	/**
+	 * Visit the edges leading into this vertex without copying them.
+	 * 
+	 * @param visitor called with the name of each source and the weight of
+	 *        its edge to this vertex; must not change the edges of any vertex
+	 */
+	public void visitInwardEdges(EdgeVisitor<? super String> visitor) {
+		assert checkRep();
+		for (Map.Entry<Vertex, Integer> e : inEdges.entrySet())
+			visitor.visit(e.getKey().getName(), e.getValue());
+	}
+
 	public List<Vertex> getTargets() {
 		return new ArrayList<>(edges.keySet());
 	}
@@ -0,0 +1,507 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A thread-safe implementation of Graph.
+ *
+ * <p>Every vertex keeps its own maps of outgoing and incoming edges, guarded
+ * by one of a fixed number of striped read-write locks chosen by the hash of
+ * its label. Set, and any increment that adds or removes an edge, lock the
+ * stripes of both endpoints; sources, targets and weight lock one stripe for
+ * reading; and the rarer remove and vertices lock every stripe. All
+ * operations but forEachTarget and forEachSource are linearizable.
+ *
+ * <p>The weight of each edge is a single atomic counter shared by both of its
+ * endpoints. Incrementing an edge that already exists is lock-free: it
+ * compare-and-sets the counter without taking any stripe, so many threads
+ * can count into a graph that is being read at the same time. Only adding or
+ * removing an edge takes the locks. The maps returned by sources and targets
+ * are still snapshots of one instant, edges and weights: under the read lock
+ * of their stripe, which keeps the counters from falling, they read the
+ * counters until two reads in a row agree. Should increments keep them from
+ * agreeing, they make increments touching their stripe take the locks until
+ * they are done.
+ *
+ * <p>forEachTarget and forEachSource take no lock, and see the edges of
+ * their vertex weakly consistently: every edge present for the whole
+ * traversal is visited once, and edges added or removed meanwhile may or may
+ * not be. The visitor may therefore call the other reading methods of this
+ * graph without risk of deadlock.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class ConcurrentGraph<L> implements Graph<L> {
+
+	private static final int DEFAULT_STRIPES = 64;
+	// So that a pair of stripes fits in 32 bits
+	private static final int MAX_STRIPES = 1 << 16;
+
+	private final ConcurrentHashMap<L, Adjacency<L>> vertices = new ConcurrentHashMap<>();
+	private final ReadWriteLock[] stripes;
+	// Per stripe, number of snapshots for which increments touching the
+	// stripe must take the locks
+	private final AtomicIntegerArray snapshotting;
+
+	// Reads of the counters a snapshot makes before it stops lock-free
+	// increments of its stripe
+	private static final int OPTIMISTIC_READS = 4;
+
+	// Abstraction function:
+	// AF(r) = a graph whose vertices are the keys of vertices, with an edge
+	// from s to t of weight c.get() for every (t, c) in vertices[s].out
+	// Representation invariant:
+	// - stripes.length is a power of two, at most MAX_STRIPES
+	// - (t, c) is in vertices[s].out iff (s, c) is in vertices[t].in, with
+	// the very same counter c, and then s and t are both keys of vertices
+	// - while no write lock is held, every counter in the maps is positive
+	// - snapshotting.length() == stripes.length, and its elements are
+	// nonnegative
+	// Safety from rep exposure:
+	// - all fields are private and final; vertices(), sources() and
+	// targets() return new maps and sets
+	// - labels are immutable
+	// Thread safety argument:
+	// - the entry of a vertex v in vertices, and the contents of its
+	// Adjacency, are only changed while holding stripeOf(v) for writing;
+	// they are concurrent maps so that increment and forEachTarget/Source
+	// can read them without it
+	// - a counter is only set to zero, and then unlinked, while holding the
+	// write locks of both endpoints; the lock-free path of increment only
+	// compare-and-sets a positive counter, so it never revives a removed edge
+	// and never removes one
+	// - while a stripe is locked for reading, the counters of the edges of
+	// its vertices only grow: lowering one takes the write locks. So a
+	// snapshot that reads the same values twice in a row read the values all
+	// counters had at once, between the two reads. Once snapshotting of its
+	// stripe is raised, no increment touching it starts on the lock-free
+	// path, and those already on it finish, so two reads soon agree
+	// - an operation touching two vertices acquires their stripes in
+	// increasing index order, and one touching all vertices acquires all
+	// stripes in that order, so locking cannot deadlock
+	// - vertices is a ConcurrentHashMap because vertices on different
+	// stripes are added and removed concurrently
+
+	/** Outgoing and incoming edges of one vertex, with their counters. Mutable. */
+	private static final class Adjacency<L> {
+		private final Map<L, AtomicInteger> out = new ConcurrentHashMap<>();
+		private final Map<L, AtomicInteger> in = new ConcurrentHashMap<>();
+	}
+
+	/** Create an empty graph. */
+	public ConcurrentGraph() {
+		this(DEFAULT_STRIPES);
+	}
+
+	/**
+	 * Create an empty graph with a given number of lock stripes.
+	 *
+	 * @param concurrency expected number of threads writing at once; the
+	 *        number of stripes is the next power of two, at least 1 and at
+	 *        most 65536
+	 */
+	public ConcurrentGraph(int concurrency) {
+		int n = 1;
+		while (n < concurrency && n < MAX_STRIPES) {
+			n <<= 1;
+		}
+		stripes = new ReadWriteLock[n];
+		for (int i = 0; i < n; i++) {
+			stripes[i] = new ReentrantReadWriteLock();
+		}
+		snapshotting = new AtomicIntegerArray(n);
+	}
+
+	@Override
+	public boolean add(L vertex) {
+		ReadWriteLock lock = stripes[stripeOf(vertex)];
+		lock.writeLock().lock();
+		try {
+			return vertices.putIfAbsent(vertex, new Adjacency<>()) == null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int set(L source, L target, int weight) {
+		if (weight < 0) {
+			return 0;
+		}
+		int first = stripeOf(source);
+		int second = stripeOf(target);
+		lockForWriting(first, second);
+		try {
+			AtomicInteger counter = counterOf(source, target);
+			if (counter == null) {
+				if (weight > 0) {
+					link(source, target, weight);
+				}
+				return 0;
+			}
+			int previous = counter.getAndSet(weight);
+			if (weight == 0) {
+				unlink(source, target);
+			}
+			return previous;
+		} finally {
+			unlockForWriting(first, second);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>Raising the weight of an existing edge is lock-free, unless sources
+	 * or targets of one of its endpoints is waiting for increments to stop.
+	 */
+	@Override
+	public int increment(L source, L target, int delta) {
+		int first = stripeOf(source);
+		int second = stripeOf(target);
+		int weight = incrementLockFree(first, second, source, target, delta);
+		if (weight > 0) {
+			return weight;
+		}
+		lockForWriting(first, second);
+		try {
+			return incrementLocked(source, target, delta);
+		} finally {
+			unlockForWriting(first, second);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>If every change raises a weight, those raising existing edges are
+	 * lock-free, as for increment. The other changes are sorted by the
+	 * stripes of their endpoints, and each group sharing both stripes is
+	 * applied while holding them once. Concurrent readers see each change
+	 * atomically, but not the batch.
+	 */
+	@Override
+	public void incrementAll(EdgeBatch<? extends L> batch) {
+		boolean raising = true;
+		for (int i = 0; raising && i < batch.size(); i++) {
+			raising = batch.delta(i) > 0;
+		}
+		// (pair of stripes, index) of the changes left for the locks, sorted
+		// so that each pair's changes are together and in batch order
+		long[] locked = new long[batch.size()];
+		int count = 0;
+		for (int i = 0; i < batch.size(); i++) {
+			int first = stripeOf(batch.source(i));
+			int second = stripeOf(batch.target(i));
+			if (raising && incrementLockFree(first, second, batch.source(i), batch.target(i), batch.delta(i)) > 0) {
+				continue;
+			}
+			locked[count++] = pairOf(first, second) << 31 | i;
+		}
+		Arrays.sort(locked, 0, count);
+		for (int g = 0; g < count;) {
+			long pair = locked[g] >>> 31;
+			int first = (int) (pair >>> 16);
+			int second = (int) (pair & (MAX_STRIPES - 1));
+			lockForWriting(first, second);
+			try {
+				for (; g < count && locked[g] >>> 31 == pair; g++) {
+					int i = (int) (locked[g] & Integer.MAX_VALUE);
+					incrementLocked(batch.source(i), batch.target(i), batch.delta(i));
+				}
+			} finally {
+				unlockForWriting(first, second);
+			}
+		}
+	}
+
+	/**
+	 * Raise the weight of an existing edge without locking, unless a
+	 * snapshot of one of its stripes is waiting for increments to stop.
+	 *
+	 * @return the new weight, or 0 if the increment must be made under the
+	 *         locks instead
+	 */
+	private int incrementLockFree(int first, int second, L source, L target, int delta) {
+		if (delta > 0 && snapshotting.get(first) == 0 && snapshotting.get(second) == 0) {
+			AtomicInteger counter = counterOf(source, target);
+			if (counter != null) {
+				for (int weight = counter.get(); weight > 0; weight = counter.get()) {
+					int updated = Math.addExact(weight, delta);
+					if (counter.compareAndSet(weight, updated)) {
+						return updated;
+					}
+				}
+				// the edge is being removed; add it again under the locks
+			}
+		}
+		return 0;
+	}
+
+	/** Requires the stripes of source and target to be locked for writing. */
+	private int incrementLocked(L source, L target, int delta) {
+		AtomicInteger counter = counterOf(source, target);
+		if (counter == null) {
+			if (delta > 0) {
+				link(source, target, delta);
+				return delta;
+			}
+			return 0;
+		}
+		while (true) {
+			int weight = counter.get();
+			int updated = Math.max(0, Math.addExact(weight, delta));
+			if (counter.compareAndSet(weight, updated)) {
+				if (updated == 0) {
+					unlink(source, target);
+				}
+				return updated;
+			}
+		}
+	}
+
+	@Override
+	public boolean remove(L vertex) {
+		lockAll(true);
+		try {
+			Adjacency<L> removed = vertices.remove(vertex);
+			if (removed == null) {
+				return false;
+			}
+			for (AtomicInteger counter : removed.out.values()) {
+				counter.set(0);
+			}
+			for (AtomicInteger counter : removed.in.values()) {
+				counter.set(0);
+			}
+			for (L target : removed.out.keySet()) {
+				Adjacency<L> t = vertices.get(target);
+				if (t != null) {
+					t.in.remove(vertex);
+				}
+			}
+			for (L source : removed.in.keySet()) {
+				Adjacency<L> s = vertices.get(source);
+				if (s != null) {
+					s.out.remove(vertex);
+				}
+			}
+			return true;
+		} finally {
+			unlockAll(true);
+		}
+	}
+
+	@Override
+	public Set<L> vertices() {
+		lockAll(false);
+		try {
+			return Collections.unmodifiableSet(new HashSet<>(vertices.keySet()));
+		} finally {
+			unlockAll(false);
+		}
+	}
+
+	@Override
+	public Map<L, Integer> sources(L target) {
+		int stripe = stripeOf(target);
+		ReadWriteLock lock = stripes[stripe];
+		lock.readLock().lock();
+		try {
+			Adjacency<L> t = vertices.get(target);
+			return t == null ? new HashMap<>() : snapshot(stripe, t.in);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Map<L, Integer> targets(L source) {
+		int stripe = stripeOf(source);
+		ReadWriteLock lock = stripes[stripe];
+		lock.readLock().lock();
+		try {
+			Adjacency<L> s = vertices.get(source);
+			return s == null ? new HashMap<>() : snapshot(stripe, s.out);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public int weight(L source, L target) {
+		ReadWriteLock lock = stripes[stripeOf(source)];
+		lock.readLock().lock();
+		try {
+			AtomicInteger counter = counterOf(source, target);
+			return counter == null ? 0 : counter.get();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+		Adjacency<L> s = vertices.get(source);
+		if (s != null) {
+			for (Map.Entry<L, AtomicInteger> e : s.out.entrySet()) {
+				int weight = e.getValue().get();
+				// a zero counter belongs to an edge being removed
+				if (weight > 0) {
+					visitor.visit(e.getKey(), weight);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+		Adjacency<L> t = vertices.get(target);
+		if (t != null) {
+			for (Map.Entry<L, AtomicInteger> e : t.in.entrySet()) {
+				int weight = e.getValue().get();
+				// a zero counter belongs to an edge being removed
+				if (weight > 0) {
+					visitor.visit(e.getKey(), weight);
+				}
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		lockAll(false);
+		try {
+			StringBuilder sb = new StringBuilder();
+			sb.append(String.format("%s@{", getClass().getName()));
+			for (Map.Entry<L, Adjacency<L>> v : vertices.entrySet()) {
+				for (Map.Entry<L, AtomicInteger> e : v.getValue().out.entrySet()) {
+					sb.append(String.format("%s-%d->%s, ", v.getKey(), e.getValue(), e.getKey()));
+				}
+			}
+			return sb.append("}").toString();
+		} finally {
+			unlockAll(false);
+		}
+	}
+
+	private int stripeOf(L vertex) {
+		int h = vertex.hashCode();
+		return (h ^ (h >>> 16)) & (stripes.length - 1);
+	}
+
+	/** @return the stripes of both endpoints of an edge, lower one first, packed in 32 bits */
+	private static long pairOf(int first, int second) {
+		return (long) Math.min(first, second) << 16 | Math.max(first, second);
+	}
+
+	/** @return the counter of the edge from source to target, or null if none */
+	private AtomicInteger counterOf(L source, L target) {
+		Adjacency<L> s = vertices.get(source);
+		return s == null ? null : s.out.get(target);
+	}
+
+	/** Requires the stripes of source and target to be locked for writing. */
+	private void link(L source, L target, int weight) {
+		AtomicInteger counter = new AtomicInteger(weight);
+		vertices.computeIfAbsent(source, k -> new Adjacency<>()).out.put(target, counter);
+		vertices.computeIfAbsent(target, k -> new Adjacency<>()).in.put(source, counter);
+	}
+
+	/** Requires the stripes of source and target to be locked for writing. */
+	private void unlink(L source, L target) {
+		vertices.get(source).out.remove(target);
+		vertices.get(target).in.remove(source);
+	}
+
+	/**
+	 * Requires stripe to be locked for reading, and counters to be edges of
+	 * one of its vertices.
+	 *
+	 * @return the weights all the counters had at one instant during the call
+	 */
+	private Map<L, Integer> snapshot(int stripe, Map<L, AtomicInteger> counters) {
+		// the read lock keeps edges from being added or removed
+		List<Map.Entry<L, AtomicInteger>> edges = new ArrayList<>(counters.entrySet());
+		int[] weights = new int[edges.size()];
+		read(edges, weights);
+		boolean stable = false;
+		for (int reads = 1; !stable && reads < OPTIMISTIC_READS; reads++) {
+			stable = read(edges, weights);
+		}
+		if (!stable) {
+			snapshotting.incrementAndGet(stripe);
+			try {
+				while (!read(edges, weights)) {
+					Thread.yield();
+				}
+			} finally {
+				snapshotting.decrementAndGet(stripe);
+			}
+		}
+		Map<L, Integer> snapshot = new HashMap<>();
+		for (int i = 0; i < weights.length; i++) {
+			snapshot.put(edges.get(i).getKey(), weights[i]);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Read the counters of edges into weights.
+	 *
+	 * @return true iff every counter read had the weight already in weights
+	 */
+	private static <L> boolean read(List<Map.Entry<L, AtomicInteger>> edges, int[] weights) {
+		boolean same = true;
+		for (int i = 0; i < weights.length; i++) {
+			int weight = edges.get(i).getValue().get();
+			same &= weight == weights[i];
+			weights[i] = weight;
+		}
+		return same;
+	}
+
+	private void lockForWriting(int first, int second) {
+		int lo = Math.min(first, second);
+		int hi = Math.max(first, second);
+		stripes[lo].writeLock().lock();
+		if (hi != lo) {
+			stripes[hi].writeLock().lock();
+		}
+	}
+
+	private void unlockForWriting(int first, int second) {
+		stripes[first].writeLock().unlock();
+		if (second != first) {
+			stripes[second].writeLock().unlock();
+		}
+	}
+
+	private void lockAll(boolean write) {
+		for (ReadWriteLock stripe : stripes) {
+			(write ? stripe.writeLock() : stripe.readLock()).lock();
+		}
+	}
+
+	private void unlockAll(boolean write) {
+		for (int i = stripes.length - 1; i >= 0; i--) {
+			(write ? stripes[i].writeLock() : stripes[i].readLock()).unlock();
+		}
+	}
+
+}
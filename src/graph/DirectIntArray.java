@@ -0,0 +1,101 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A growable array of ints outside the Java heap, indexed by long, so it is
+ * not limited to the 2 GB of a single direct buffer. Small arrays are one
+ * buffer; larger ones are split into segments of 64 MB. New elements are 0.
+ * Mutable. This class is internal to the rep of OffHeapGraph.
+ */
+class DirectIntArray {
+
+	private static final int SEGMENT_BITS = 24;
+	private static final int SEGMENT_INTS = 1 << SEGMENT_BITS;
+	private static final long OFFSET_MASK = SEGMENT_INTS - 1;
+
+	private ByteBuffer[] segments;
+	private long length;
+
+	// Abstraction function:
+	// AF(r) = the ints at byte offsets 4*(i & OFFSET_MASK) of
+	// segments[i >>> SEGMENT_BITS], for 0 <= i < length
+	// Representation invariant:
+	// - segments is not empty; if it has one segment, that segment holds
+	// exactly length ints, and otherwise every segment holds SEGMENT_INTS
+	// ints and length is their total
+	// Safety from rep exposure:
+	// - all fields are private and the buffers are never returned
+
+	/**
+	 * @param length number of ints, positive
+	 */
+	DirectIntArray(long length) {
+		segments = new ByteBuffer[0];
+		this.length = 0;
+		grow(length);
+	}
+
+	/** @return number of ints in this array */
+	long length() {
+		return length;
+	}
+
+	/** @return number of bytes of direct memory held by this array */
+	long bytes() {
+		return length * Integer.BYTES;
+	}
+
+	int get(long i) {
+		return segments[(int) (i >>> SEGMENT_BITS)].getInt((int) (i & OFFSET_MASK) * Integer.BYTES);
+	}
+
+	void set(long i, int value) {
+		segments[(int) (i >>> SEGMENT_BITS)].putInt((int) (i & OFFSET_MASK) * Integer.BYTES, value);
+	}
+
+	/**
+	 * Make this array at least length ints long, keeping its contents; the
+	 * new ints are 0.
+	 *
+	 * @param length minimum new length
+	 */
+	void grow(long length) {
+		if (length <= this.length) {
+			return;
+		}
+		if (length <= SEGMENT_INTS) {
+			segments = new ByteBuffer[] { copy(segments.length == 0 ? null : segments[0], (int) length) };
+			this.length = length;
+			return;
+		}
+		int count = (int) ((length + SEGMENT_INTS - 1) >>> SEGMENT_BITS);
+		ByteBuffer[] grown = Arrays.copyOf(segments, count);
+		if (this.length < SEGMENT_INTS) {
+			grown[0] = copy(segments[0], SEGMENT_INTS);
+		}
+		for (int i = segments.length; i < count; i++) {
+			grown[i] = copy(null, SEGMENT_INTS);
+		}
+		segments = grown;
+		this.length = (long) count * SEGMENT_INTS;
+	}
+
+	/** @return a new buffer of ints ints, starting with the contents of old if it is not null */
+	private static ByteBuffer copy(ByteBuffer old, int ints) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(ints * Integer.BYTES).order(ByteOrder.nativeOrder());
+		if (old != null) {
+			ByteBuffer contents = old.duplicate();
+			contents.clear();
+			buffer.put(contents);
+			buffer.clear();
+		}
+		return buffer;
+	}
+
+}
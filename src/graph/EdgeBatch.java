@@ -0,0 +1,118 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * A mutable list of edge weight changes, to be applied to a graph all at once
+ * with {@link Graph#incrementAll(EdgeBatch)}.
+ *
+ * <p>Each change is a (source, target, delta) triple. The triples are kept in
+ * parallel arrays, so adding one doesn't allocate unless the batch has to
+ * grow.
+ *
+ * @param <L> type of vertex labels, must be immutable
+ */
+public final class EdgeBatch<L> {
+
+	private Object[] sources;
+	private Object[] targets;
+	private int[] deltas;
+	private int size = 0;
+
+	// Abstraction function:
+	// AF(r) = the list [ (sources[i], targets[i], deltas[i]) for 0 <= i < size ]
+	// Representation invariant:
+	// - sources, targets and deltas have the same length, at least size
+	// - sources[0..size) and targets[0..size) are non-null elements of type L
+	// Safety from rep exposure:
+	// - the arrays are private and never returned; labels are immutable
+
+	/** Create an empty batch. */
+	public EdgeBatch() {
+		this(16);
+	}
+
+	/**
+	 * Create an empty batch with room for a number of changes.
+	 *
+	 * @param capacity number of changes the batch can hold before it grows,
+	 *        nonnegative
+	 */
+	public EdgeBatch(int capacity) {
+		sources = new Object[capacity];
+		targets = new Object[capacity];
+		deltas = new int[capacity];
+	}
+
+	/**
+	 * Append a change to this batch.
+	 *
+	 * @param source label of the source vertex
+	 * @param target label of the target vertex
+	 * @param delta amount to add to the weight of the edge from source to
+	 *        target
+	 */
+	public void add(L source, L target, int delta) {
+		if (size == deltas.length) {
+			int capacity = Math.max(16, size * 2);
+			sources = Arrays.copyOf(sources, capacity);
+			targets = Arrays.copyOf(targets, capacity);
+			deltas = Arrays.copyOf(deltas, capacity);
+		}
+		sources[size] = source;
+		targets[size] = target;
+		deltas[size] = delta;
+		size++;
+	}
+
+	/** @return number of changes in this batch */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param i index of a change, 0 <= i < size()
+	 * @return label of the source vertex of the i-th change
+	 */
+	@SuppressWarnings("unchecked")
+	public L source(int i) {
+		checkIndex(i);
+		return (L) sources[i];
+	}
+
+	/**
+	 * @param i index of a change, 0 <= i < size()
+	 * @return label of the target vertex of the i-th change
+	 */
+	@SuppressWarnings("unchecked")
+	public L target(int i) {
+		checkIndex(i);
+		return (L) targets[i];
+	}
+
+	/**
+	 * @param i index of a change, 0 <= i < size()
+	 * @return amount the i-th change adds to its edge's weight
+	 */
+	public int delta(int i) {
+		checkIndex(i);
+		return deltas[i];
+	}
+
+	/** Remove every change from this batch, keeping its capacity. */
+	public void clear() {
+		Arrays.fill(sources, 0, size, null);
+		Arrays.fill(targets, 0, size, null);
+		size = 0;
+	}
+
+	private void checkIndex(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+		}
+	}
+
+}
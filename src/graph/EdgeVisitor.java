@@ -0,0 +1,24 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+/**
+ * A callback that receives the edges adjacent to a vertex, one at a time.
+ * 
+ * @param <L> type of vertex labels in the graph being traversed
+ * @see Graph#forEachTarget(Object, EdgeVisitor)
+ * @see Graph#forEachSource(Object, EdgeVisitor)
+ */
+@FunctionalInterface
+public interface EdgeVisitor<L> {
+    
+    /**
+     * Visit one edge.
+     * 
+     * @param vertex label of the vertex at the other end of the edge
+     * @param weight (nonzero) weight of the edge
+     */
+    public void visit(L vertex, int weight);
+    
+}
@@ -0,0 +1,226 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table from a (source id, target id) pair to a positive
+ * edge weight, stored in primitive arrays so that lookups and updates never
+ * box. Mutable. This class is internal to the rep of the int-keyed graphs.
+ */
+class EdgeWeightTable {
+
+	private static final long EMPTY = -1L;
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	private int[] weights;
+	private int size = 0;
+
+	// Abstraction function:
+	// AF(keys, weights) = { (key >>> 32, key & 0xffffffff) -> weights[i]
+	// for every slot i with keys[i] = key != EMPTY }
+	// Representation invariant:
+	// - keys.length == weights.length is a power of two
+	// - size is the number of non-EMPTY slots, and size <= 3/4 keys.length
+	// - every non-EMPTY key is reachable by linear probing from its home slot
+	// without crossing an EMPTY slot
+	// - weights of non-EMPTY slots are positive
+	// Safety from rep exposure:
+	// - arrays are private and never returned
+
+	EdgeWeightTable() {
+		this(MIN_CAPACITY);
+	}
+
+	EdgeWeightTable(int expectedEdges) {
+		int capacity = MIN_CAPACITY;
+		while (capacity * 3L / 4 < expectedEdges) {
+			capacity <<= 1;
+		}
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		weights = new int[capacity];
+	}
+
+	/** @return number of edges in the table */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Grow the table now, if needed, so that a number of edges can be added
+	 * without resizing it.
+	 *
+	 * @param edges number of edges that may be added, nonnegative
+	 */
+	void reserve(int edges) {
+		long needed = (long) size + edges;
+		int capacity = keys.length;
+		while (capacity * 3L / 4 < needed) {
+			capacity <<= 1;
+		}
+		if (capacity != keys.length) {
+			resize(capacity);
+		}
+	}
+
+	/** @return bytes used by the table's arrays */
+	long footprint() {
+		return keys.length * (long) (Long.BYTES + Integer.BYTES);
+	}
+
+	/**
+	 * @param source nonnegative source id
+	 * @param target nonnegative target id
+	 * @return the weight of the edge, or 0 if there is no such edge
+	 */
+	int get(int source, int target) {
+		long key = key(source, target);
+		int mask = keys.length - 1;
+		for (int i = home(key, mask);; i = (i + 1) & mask) {
+			long k = keys[i];
+			if (k == key) {
+				return weights[i];
+			} else if (k == EMPTY) {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Add, change or remove an edge.
+	 *
+	 * @param source nonnegative source id
+	 * @param target nonnegative target id
+	 * @param weight new weight; zero removes the edge
+	 * @return the previous weight of the edge, or 0 if there was no such edge
+	 */
+	int put(int source, int target, int weight) {
+		assert weight >= 0;
+		long key = key(source, target);
+		int mask = keys.length - 1;
+		int i = home(key, mask);
+		for (;; i = (i + 1) & mask) {
+			long k = keys[i];
+			if (k == key) {
+				int previous = weights[i];
+				if (weight == 0) {
+					deleteSlot(i);
+				} else {
+					weights[i] = weight;
+				}
+				return previous;
+			} else if (k == EMPTY) {
+				break;
+			}
+		}
+		if (weight != 0) {
+			keys[i] = key;
+			weights[i] = weight;
+			if (++size > keys.length * 3 / 4) {
+				resize(keys.length << 1);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Add to the weight of an edge, adding or removing the edge as needed.
+	 *
+	 * @param source nonnegative source id
+	 * @param target nonnegative target id
+	 * @param delta amount to add to the weight, which is 0 if there is no such
+	 *        edge
+	 * @return the new weight; the edge is removed (or not added) if it would
+	 *         be zero or less, in which case 0 is returned
+	 * @throws ArithmeticException if the new weight overflows an int
+	 */
+	int add(int source, int target, int delta) {
+		long key = key(source, target);
+		int mask = keys.length - 1;
+		int i = home(key, mask);
+		for (;; i = (i + 1) & mask) {
+			long k = keys[i];
+			if (k == key) {
+				int weight = Math.addExact(weights[i], delta);
+				if (weight <= 0) {
+					deleteSlot(i);
+					return 0;
+				}
+				weights[i] = weight;
+				return weight;
+			} else if (k == EMPTY) {
+				break;
+			}
+		}
+		if (delta <= 0) {
+			return 0;
+		}
+		keys[i] = key;
+		weights[i] = delta;
+		if (++size > keys.length * 3 / 4) {
+			resize(keys.length << 1);
+		}
+		return delta;
+	}
+
+	/** Removes every edge. */
+	void clear() {
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	private static long key(int source, int target) {
+		return ((long) source << 32) | (target & 0xffffffffL);
+	}
+
+	private static int home(long key, int mask) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> 32) & mask;
+	}
+
+	/**
+	 * Empties slot i and shifts later entries of its probe run back, so no
+	 * tombstones are needed.
+	 */
+	private void deleteSlot(int i) {
+		int mask = keys.length - 1;
+		int hole = i;
+		for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+			int h = home(keys[j], mask);
+			// move j into the hole unless its home lies cyclically in (hole, j]
+			boolean stays = hole <= j ? (hole < h && h <= j) : (hole < h || h <= j);
+			if (!stays) {
+				keys[hole] = keys[j];
+				weights[hole] = weights[j];
+				hole = j;
+			}
+		}
+		keys[hole] = EMPTY;
+		size--;
+	}
+
+	private void resize(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldWeights = weights;
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		weights = new int[capacity];
+		int mask = capacity - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			long k = oldKeys[i];
+			if (k != EMPTY) {
+				int j = home(k, mask);
+				while (keys[j] != EMPTY) {
+					j = (j + 1) & mask;
+				}
+				keys[j] = k;
+				weights[j] = oldWeights[i];
+			}
+		}
+	}
+
+}
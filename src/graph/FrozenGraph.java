@@ -0,0 +1,266 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of a Graph, stored in compressed sparse row form.
+ *
+ * <p>The edges out of every vertex are stored contiguously in primitive
+ * arrays, sorted by target id, and indexed by a forward offsets array; the
+ * edges into every vertex are stored the same way with a reverse offsets
+ * array. {@link #weight(Object, Object)} and the forEachTarget/forEachSource
+ * traversals do not allocate. Instances are
+ * immutable and can be read by many threads at once without locking.
+ *
+ * <p>The mutators {@link #add(Object)}, {@link #set(Object, Object, int)} and
+ * {@link #remove(Object)} throw UnsupportedOperationException.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public final class FrozenGraph<L> implements Graph<L> {
+
+	private final List<L> labels;
+	private final Map<L, Integer> ids;
+	private final Set<L> vertices;
+
+	private final int[] outOffsets;
+	private final int[] outTargets;
+	private final int[] outWeights;
+	private final int[] inOffsets;
+	private final int[] inSources;
+	private final int[] inWeights;
+
+	// Abstraction function:
+	// AF(r) = a graph whose vertices are labels, with an edge from
+	// labels[s] to labels[outTargets[i]] of weight outWeights[i] for every s
+	// and every outOffsets[s] <= i < outOffsets[s + 1]
+	// Representation invariant:
+	// - ids is the inverse of labels, and vertices has the same elements
+	// - outOffsets and inOffsets have labels.size() + 1 nondecreasing
+	// elements, starting at 0 and ending at the number of edges
+	// - each row of outTargets (and of inSources) is strictly increasing
+	// - all weights are positive
+	// - the in arrays describe exactly the same edges as the out arrays
+	// Safety from rep exposure:
+	// - all fields are private and final, and the arrays are never
+	// modified after construction or returned
+	// - labels, ids and vertices are unmodifiable
+	// - sources() and targets() return new maps
+	// Thread safety argument:
+	// - the rep is never mutated after construction, and all fields are
+	// final, so a FrozenGraph is safely published to every thread
+
+	private FrozenGraph(List<L> labels, Map<L, Integer> ids, int[] outOffsets, int[] outTargets,
+			int[] outWeights) {
+		this.labels = Collections.unmodifiableList(labels);
+		this.ids = Collections.unmodifiableMap(ids);
+		this.vertices = Collections.unmodifiableSet(new LinkedHashSet<>(labels));
+		this.outOffsets = outOffsets;
+		this.outTargets = outTargets;
+		this.outWeights = outWeights;
+
+		// Build the reverse rows by counting in-degrees. Scanning sources in
+		// increasing order leaves every reverse row sorted by source id.
+		int n = labels.size();
+		int[] offsets = new int[n + 1];
+		for (int i = 0; i < outTargets.length; i++) {
+			offsets[outTargets[i] + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+		int[] next = Arrays.copyOf(offsets, n);
+		int[] sources = new int[outTargets.length];
+		int[] weights = new int[outTargets.length];
+		for (int s = 0; s < n; s++) {
+			for (int i = outOffsets[s]; i < outOffsets[s + 1]; i++) {
+				int slot = next[outTargets[i]]++;
+				sources[slot] = s;
+				weights[slot] = outWeights[i];
+			}
+		}
+		this.inOffsets = offsets;
+		this.inSources = sources;
+		this.inWeights = weights;
+		checkRep();
+	}
+
+	/**
+	 * Take a snapshot of a graph. Later changes to graph are not reflected in
+	 * the snapshot.
+	 *
+	 * @param <L> type of vertex labels in the graph, must be immutable
+	 * @param graph graph to copy
+	 * @return an immutable graph with the same vertices and edges as graph
+	 */
+	public static <L> FrozenGraph<L> freeze(Graph<L> graph) {
+		if (graph instanceof FrozenGraph) {
+			return (FrozenGraph<L>) graph;
+		}
+		List<L> labels = new ArrayList<>(graph.vertices());
+		Map<L, Integer> ids = new HashMap<>();
+		for (L label : labels) {
+			ids.put(label, ids.size());
+		}
+
+		int[] offsets = new int[labels.size() + 1];
+		int[] targets = new int[16];
+		int[] weights = new int[16];
+		int edges = 0;
+		long[] row = new long[16];
+		for (int s = 0; s < labels.size(); s++) {
+			Map<L, Integer> out = graph.targets(labels.get(s));
+			if (row.length < out.size()) {
+				row = new long[Math.max(out.size(), row.length * 2)];
+			}
+			// pack (target id, weight) so one primitive sort orders the row
+			int degree = 0;
+			for (Map.Entry<L, Integer> e : out.entrySet()) {
+				row[degree++] = ((long) ids.get(e.getKey()) << 32) | (e.getValue() & 0xffffffffL);
+			}
+			Arrays.sort(row, 0, degree);
+			if (edges + degree > targets.length) {
+				int capacity = Math.max(edges + degree, targets.length * 2);
+				targets = Arrays.copyOf(targets, capacity);
+				weights = Arrays.copyOf(weights, capacity);
+			}
+			for (int i = 0; i < degree; i++) {
+				targets[edges] = (int) (row[i] >>> 32);
+				weights[edges] = (int) row[i];
+				edges++;
+			}
+			offsets[s + 1] = edges;
+		}
+		return new FrozenGraph<>(labels, ids, offsets, Arrays.copyOf(targets, edges),
+				Arrays.copyOf(weights, edges));
+	}
+
+	/**
+	 * Make a graph from rows of edges that are already in compressed sparse
+	 * row form.
+	 *
+	 * @param <L> type of vertex labels, must be immutable
+	 * @param labels distinct labels, indexed by vertex id; not modified later
+	 * @param outOffsets labels.size() + 1 nondecreasing row starts, from 0 to
+	 *        the number of edges
+	 * @param outTargets target ids of each row, strictly increasing in a row
+	 * @param outWeights positive weights, parallel to outTargets
+	 * @return a graph with those edges; it owns the arrays
+	 */
+	static <L> FrozenGraph<L> fromRows(List<L> labels, int[] outOffsets, int[] outTargets, int[] outWeights) {
+		Map<L, Integer> ids = new HashMap<>();
+		for (L label : labels) {
+			ids.put(label, ids.size());
+		}
+		return new FrozenGraph<>(labels, ids, outOffsets, outTargets, outWeights);
+	}
+
+	private void checkRep() {
+		assert ids.size() == labels.size();
+		assert outOffsets.length == labels.size() + 1 && inOffsets.length == outOffsets.length;
+		assert outOffsets[labels.size()] == outTargets.length && inOffsets[labels.size()] == inSources.length;
+	}
+
+	@Override
+	public boolean add(L vertex) {
+		throw new UnsupportedOperationException("FrozenGraph is immutable");
+	}
+
+	@Override
+	public int set(L source, L target, int weight) {
+		throw new UnsupportedOperationException("FrozenGraph is immutable");
+	}
+
+	@Override
+	public boolean remove(L vertex) {
+		throw new UnsupportedOperationException("FrozenGraph is immutable");
+	}
+
+	@Override
+	public Set<L> vertices() {
+		return vertices;
+	}
+
+	@Override
+	public Map<L, Integer> sources(L target) {
+		Map<L, Integer> sources = new HashMap<>();
+		Integer t = ids.get(target);
+		if (t != null) {
+			for (int i = inOffsets[t]; i < inOffsets[t + 1]; i++) {
+				sources.put(labels.get(inSources[i]), inWeights[i]);
+			}
+		}
+		return sources;
+	}
+
+	@Override
+	public Map<L, Integer> targets(L source) {
+		Map<L, Integer> targets = new HashMap<>();
+		Integer s = ids.get(source);
+		if (s != null) {
+			for (int i = outOffsets[s]; i < outOffsets[s + 1]; i++) {
+				targets.put(labels.get(outTargets[i]), outWeights[i]);
+			}
+		}
+		return targets;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>Does not allocate.
+	 */
+	@Override
+	public int weight(L source, L target) {
+		Integer s = ids.get(source);
+		Integer t = ids.get(target);
+		if (s == null || t == null) {
+			return 0;
+		}
+		int i = Arrays.binarySearch(outTargets, outOffsets[s], outOffsets[s + 1], t);
+		return i < 0 ? 0 : outWeights[i];
+	}
+
+	@Override
+	public void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+		Integer s = ids.get(source);
+		if (s != null) {
+			for (int i = outOffsets[s]; i < outOffsets[s + 1]; i++) {
+				visitor.visit(labels.get(outTargets[i]), outWeights[i]);
+			}
+		}
+	}
+
+	@Override
+	public void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+		Integer t = ids.get(target);
+		if (t != null) {
+			for (int i = inOffsets[t]; i < inOffsets[t + 1]; i++) {
+				visitor.visit(labels.get(inSources[i]), inWeights[i]);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%s@{", getClass().getName()));
+		for (int s = 0; s < labels.size(); s++) {
+			for (int i = outOffsets[s]; i < outOffsets[s + 1]; i++) {
+				sb.append(String.format("%s-%d->%s, ", labels.get(s), outWeights[i], labels.get(outTargets[i])));
+			}
+		}
+		return sb.append("}").toString();
+	}
+
+}
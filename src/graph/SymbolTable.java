@@ -0,0 +1,144 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A table that gives each distinct label a dense int id, and keeps one
+ * shared instance of each label.
+ *
+ * <p>Ids are assigned 0, 1, 2, ... in the order labels are first interned,
+ * and are never reused, so several graphs built over one table agree on the
+ * id of every label and can store and compare ids instead of labels. Every
+ * equal label interned afterwards is replaced by the first instance, and the
+ * table counts these duplicates and estimates the heap they would have
+ * taken: for a String, its Java 8 layout (a 24-byte object and a char
+ * array); for any other label, 16 bytes.
+ *
+ * <p>Labels are never removed. A SymbolTable is safe for use by many threads
+ * at once; looking up a label that is already in the table does not lock.
+ *
+ * @param <L> type of labels, must be immutable
+ */
+public final class SymbolTable<L> {
+
+	private final ConcurrentHashMap<L, Integer> ids = new ConcurrentHashMap<>();
+	private volatile Object[] labels = new Object[16];
+	private final LongAdder duplicates = new LongAdder();
+	private final LongAdder savedBytes = new LongAdder();
+
+	// Abstraction function:
+	// AF(r) = the table mapping labels[i] <-> i for 0 <= i < ids.size()
+	// Representation invariant:
+	// - ids and labels[0..ids.size()) are inverse
+	// Safety from rep exposure:
+	// - all fields are private and never returned; labels are immutable
+	// Thread safety argument:
+	// - new ids are only assigned while holding this object's lock, which
+	// writes labels[id] before publishing id in ids, so a thread that gets
+	// an id from ids also sees the label; a grown labels array is a copy
+	// that already holds every label, and is published through a volatile
+	// field
+	// - the counters are LongAdders
+
+	/**
+	 * Get the id of a label, adding it to the table if it is not there yet.
+	 *
+	 * @param label a label
+	 * @return the id of label
+	 */
+	public int intern(L label) {
+		Integer id = ids.get(label);
+		if (id != null) {
+			countDuplicate(label, id);
+			return id;
+		}
+		synchronized (this) {
+			id = ids.get(label);
+			if (id != null) {
+				countDuplicate(label, id);
+				return id;
+			}
+			int next = ids.size();
+			if (next == labels.length) {
+				labels = Arrays.copyOf(labels, next * 2);
+			}
+			labels[next] = label;
+			ids.put(label, next);
+			return next;
+		}
+	}
+
+	/**
+	 * Get the shared instance of a label, adding it to the table if it is not
+	 * there yet.
+	 *
+	 * @param label a label
+	 * @return the label in the table equal to label
+	 */
+	public L canonical(L label) {
+		return label(intern(label));
+	}
+
+	/**
+	 * Look up a label without adding it.
+	 *
+	 * @param label a label
+	 * @return the id of label, or -1 if it is not in the table
+	 */
+	public int id(L label) {
+		Integer id = ids.get(label);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @param id id of a label in this table, 0 <= id < size()
+	 * @return the label with that id
+	 */
+	@SuppressWarnings("unchecked")
+	public L label(int id) {
+		return (L) labels[id];
+	}
+
+	/** @return number of distinct labels in the table */
+	public int size() {
+		return ids.size();
+	}
+
+	/**
+	 * @return number of times a label was interned that was equal to, but
+	 *         not the same object as, the table's instance
+	 */
+	public long duplicates() {
+		return duplicates.sum();
+	}
+
+	/**
+	 * @return estimated number of heap bytes taken by the duplicates counted
+	 *         by {@link #duplicates()}, which can be freed by using the
+	 *         table's instances instead
+	 */
+	public long savedBytes() {
+		return savedBytes.sum();
+	}
+
+	private void countDuplicate(L label, int id) {
+		if (labels[id] != label) {
+			duplicates.increment();
+			savedBytes.add(estimateSize(label));
+		}
+	}
+
+	private static long estimateSize(Object label) {
+		if (label instanceof String) {
+			long chars = (16 + 2L * ((String) label).length() + 7) & ~7L;
+			return 24 + chars;
+		}
+		return 16;
+	}
+
+}
@@ -0,0 +1,135 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The vertices of one int-keyed graph, numbered by dense ids. Mutable. This
+ * class is internal to the rep of CompactGraph and OffHeapGraph.
+ *
+ * <p>Without a symbol table, ids are private to the graph, and the ids of
+ * removed vertices are reused. With a {@link SymbolTable}, the id of a vertex
+ * is its label's id in the table, which may be shared with other graphs, and
+ * the label stored is the table's instance; ids are then never reused.
+ *
+ * @param <L> type of vertex labels, must be immutable
+ */
+class VertexIds<L> {
+
+	private final SymbolTable<L> symbols;
+	private final Map<L, Integer> ids = new HashMap<>();
+	private final List<L> labels = new ArrayList<>();
+
+	// Ids of removed vertices, available for reuse; always empty with a
+	// symbol table
+	private int[] freeIds = new int[0];
+	private int freeCount = 0;
+
+	// Abstraction function:
+	// AF(r) = the vertices labels[i] with ids i, for every non-null labels[i]
+	// Representation invariant:
+	// - ids and the non-null elements of labels are inverse
+	// - without symbols, labels[i] == null iff i is one of freeIds[0..freeCount)
+	// - with symbols, freeCount == 0 and labels[i] is null or
+	// symbols.label(i)
+	// Safety from rep exposure:
+	// - all fields are private; labels() is an unmodifiable view
+	// - labels are immutable
+
+	/**
+	 * @param symbols table to take ids and labels from, or null to number
+	 *        vertices privately
+	 */
+	VertexIds(SymbolTable<L> symbols) {
+		this.symbols = symbols;
+	}
+
+	/** @return id of the vertex labelled label, or -1 if there is none */
+	int find(L label) {
+		Integer id = ids.get(label);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @param label a label
+	 * @return id of the vertex labelled label, which is added if it was not a
+	 *         vertex yet
+	 */
+	int intern(L label) {
+		Integer existing = ids.get(label);
+		if (existing != null) {
+			return existing;
+		}
+		int id;
+		if (symbols != null) {
+			id = symbols.intern(label);
+			label = symbols.label(id);
+			while (labels.size() <= id) {
+				labels.add(null);
+			}
+			labels.set(id, label);
+		} else if (freeCount > 0) {
+			id = freeIds[--freeCount];
+			labels.set(id, label);
+		} else {
+			id = labels.size();
+			labels.add(label);
+		}
+		ids.put(label, id);
+		return id;
+	}
+
+	/**
+	 * @param label a label
+	 * @return id the vertex labelled label had, or -1 if there was none
+	 */
+	int remove(L label) {
+		Integer boxed = ids.remove(label);
+		if (boxed == null) {
+			return -1;
+		}
+		int id = boxed;
+		labels.set(id, null);
+		if (symbols == null) {
+			if (freeCount == freeIds.length) {
+				freeIds = Arrays.copyOf(freeIds, Math.max(4, freeCount * 2));
+			}
+			freeIds[freeCount++] = id;
+		}
+		return id;
+	}
+
+	/** @return label of the vertex with id, or null if it has been removed */
+	L label(int id) {
+		return labels.get(id);
+	}
+
+	/** @return one more than the largest id ever assigned to a vertex */
+	int limit() {
+		return labels.size();
+	}
+
+	/** @return number of vertices */
+	int size() {
+		return ids.size();
+	}
+
+	/** @return unmodifiable view of the vertex labels */
+	Set<L> labels() {
+		return Collections.unmodifiableSet(ids.keySet());
+	}
+
+	/** @return true iff the rep invariant holds, cheaply checked */
+	boolean isConsistent() {
+		return symbols == null ? ids.size() + freeCount == labels.size() : freeCount == 0;
+	}
+
+}
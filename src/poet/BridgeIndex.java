@@ -0,0 +1,173 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import graph.Graph;
+
+/**
+ * A precomputed table of the best bridge word for pairs of words.
+ * 
+ * <p>The index is built in a single pass over the affinity graph: for every
+ * word b, each source a of b is paired with each target c of b, and the
+ * heaviest a -> b -> c path is kept for every pair (a, c), with ties broken as
+ * in {@link BridgeSearch}. To bound memory, the index keeps at most a given
+ * number of pairs: whenever it grows past that cap, the pairs with the
+ * lightest best paths are dropped and any later path that is no heavier is
+ * ignored. An index that had to drop pairs is incomplete, and a missing pair
+ * then has to be looked up in the graph instead.
+ * 
+ * <p>Immutable once built, so it is safe to read from several threads.
+ */
+final class BridgeIndex {
+    
+    private final Map<String, Map<String, Bridge>> bridges = new HashMap<>();
+    private final int maxPairs;
+    private int size = 0;
+    
+    // Paths this heavy or lighter have been dropped; 0 while nothing has
+    private long threshold = 0;
+    
+    /*	Abstraction function:
+     * 		AF(r) = the table { (a, c) -> bridges[a][c].word }; if threshold
+     * 		is 0 the table has every pair with a two-edge path, otherwise it
+     * 		has exactly the pairs whose best path is heavier than threshold
+     */
+    
+    /*	Representation invariant:
+     * 		size is the number of entries in the inner maps, no inner map is
+     * 		empty, and after build() size <= maxPairs
+     * 		every entry has weight > threshold
+     */
+    
+    /*	Safety from rep exposure:
+     * 		The maps are private and never returned; Bridge and String are
+     * 		immutable
+     */
+    
+    /** Best bridge found for one pair of words. Immutable. */
+    private static final class Bridge {
+        private final String word;
+        private final long weight;
+        
+        Bridge(String word, long weight) {
+            this.word = word;
+            this.weight = weight;
+        }
+    }
+    
+    private BridgeIndex(int maxPairs) {
+        this.maxPairs = maxPairs;
+    }
+    
+    /**
+     * Build the bridge index of a graph.
+     * 
+     * @param graph affinity graph to index
+     * @param maxPairs maximum number of word pairs to keep, nonnegative
+     * @return index of the best bridges in graph
+     */
+    static BridgeIndex build(Graph<String> graph, int maxPairs) {
+        if (maxPairs < 0) {
+            throw new IllegalArgumentException("maxPairs must be nonnegative: " + maxPairs);
+        }
+        BridgeIndex index = new BridgeIndex(maxPairs);
+        for (String bridge : graph.vertices()) {
+            graph.forEachSource(bridge, (w1, first) ->
+                graph.forEachTarget(bridge, (w2, second) ->
+                    index.offer(w1, w2, bridge, (long) first + second)));
+        }
+        if (index.size > maxPairs) {
+            index.prune();
+        }
+        index.checkRep();
+        return index;
+    }
+    
+    private void checkRep() {
+        assert size <= maxPairs;
+        assert threshold >= 0;
+    }
+    
+    /**
+     * Look up the best bridge between two words.
+     * 
+     * @param w1 first word, lower case
+     * @param w2 second word, lower case
+     * @return the best bridge from w1 to w2, or null if the pair is not in
+     *         the index
+     */
+    String get(String w1, String w2) {
+        Map<String, Bridge> row = bridges.get(w1);
+        if (row == null) {
+            return null;
+        }
+        Bridge bridge = row.get(w2);
+        return bridge == null ? null : bridge.word;
+    }
+    
+    /**
+     * @return true iff every pair of words with a bridge is in the index, so
+     *         a pair missing from the index has no bridge
+     */
+    boolean isComplete() {
+        return threshold == 0;
+    }
+    
+    /** @return number of word pairs in the index */
+    int size() {
+        return size;
+    }
+    
+    private void offer(String w1, String w2, String word, long weight) {
+        if (weight <= threshold) {
+            return;
+        }
+        Map<String, Bridge> row = bridges.computeIfAbsent(w1, k -> new HashMap<>());
+        Bridge current = row.get(w2);
+        if (current == null) {
+            row.put(w2, new Bridge(word, weight));
+            size++;
+            if (size > maxPairs && size >= 2L * maxPairs + 16) {
+                prune();
+            }
+        } else if (BridgeSearch.isBetter(word, weight, current.word, current.weight)) {
+            row.put(w2, new Bridge(word, weight));
+        }
+    }
+    
+    /**
+     * Drop the lightest pairs so that at most maxPairs remain, and raise the
+     * threshold so that paths no heavier than the dropped ones are ignored.
+     */
+    private void prune() {
+        long[] weights = new long[size];
+        int i = 0;
+        for (Map<String, Bridge> row : bridges.values()) {
+            for (Bridge bridge : row.values()) {
+                weights[i++] = bridge.weight;
+            }
+        }
+        Arrays.sort(weights);
+        threshold = Math.max(threshold, weights[size - maxPairs - 1]);
+        
+        for (Iterator<Map<String, Bridge>> rows = bridges.values().iterator(); rows.hasNext();) {
+            Map<String, Bridge> row = rows.next();
+            for (Iterator<Bridge> it = row.values().iterator(); it.hasNext();) {
+                if (it.next().weight <= threshold) {
+                    it.remove();
+                    size--;
+                }
+            }
+            if (row.isEmpty()) {
+                rows.remove();
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,113 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import graph.BridgeGraph;
+import graph.BridgeVisitor;
+import graph.EdgeVisitor;
+import graph.Graph;
+
+/**
+ * Finds the best bridge word between two words by walking the affinity graph.
+ * 
+ * <p>The best bridge from w1 to w2 is the word b on the maximum-weight
+ * two-edge path w1 -> b -> w2; ties are broken by choosing the b that comes
+ * first in String order. Mutable, and not safe for use by several threads at
+ * once; a search can be reused for any number of lookups without allocating.
+ * Over a {@link BridgeGraph}, such as a MappedGraph, a lookup asks the graph
+ * for the paths from w1 to w2 instead of looking up every target of w1 by
+ * label.
+ */
+final class BridgeSearch implements EdgeVisitor<String>, BridgeVisitor<String> {
+    
+    private final Graph<String> graph;
+    
+    // State of the lookup in progress
+    private String target;
+    private String bestWord;
+    private long bestWeight;
+    
+    /*	Abstraction function:
+     * 		A search over graph; during find(w1, w2), bestWord is the best
+     * 		bridge among the targets of w1 visited so far (null if none yet)
+     * 		and bestWeight is the weight of its path
+     */
+    
+    /*	Representation invariant:
+     * 		graph is non-null; bestWord == null iff bestWeight == 0
+     */
+    
+    /*	Safety from rep exposure:
+     * 		All fields are private, and Strings are immutable
+     */
+    
+    /**
+     * Create a search over a graph.
+     * 
+     * @param graph affinity graph to search; the search reads it live
+     */
+    BridgeSearch(Graph<String> graph) {
+        this.graph = graph;
+    }
+    
+    /**
+     * Find the best bridge word between two words.
+     * 
+     * @param w1 first word, lower case
+     * @param w2 second word, lower case
+     * @return the best bridge b with w1 -> b -> w2 in the graph, or null if
+     *         there is no such path
+     */
+    String find(String w1, String w2) {
+        target = w2;
+        bestWord = null;
+        bestWeight = 0;
+        if (graph instanceof BridgeGraph) {
+            ((BridgeGraph<String>) graph).forEachBridge(w1, w2, this);
+        } else {
+            graph.forEachTarget(w1, this);
+        }
+        return bestWord;
+    }
+    
+    /**
+     * @return the weight of the path through the bridge returned by the last
+     *         call to find, or 0 if it found none
+     */
+    long bestWeight() {
+        return bestWeight;
+    }
+    
+    @Override
+    public void visit(String bridge, int weight) {
+        int second = graph.weight(bridge, target);
+        if (second > 0) {
+            visit(bridge, weight, second);
+        }
+    }
+    
+    @Override
+    public void visit(String bridge, int first, int second) {
+        long total = (long) first + second;
+        if (isBetter(bridge, total, bestWord, bestWeight)) {
+            bestWord = bridge;
+            bestWeight = total;
+        }
+    }
+    
+    /**
+     * Compare a candidate bridge against the best one so far.
+     * 
+     * @param word candidate bridge word
+     * @param weight weight of the path through word
+     * @param bestWord best bridge word so far, or null if none
+     * @param bestWeight weight of the path through bestWord
+     * @return true iff word should replace bestWord
+     */
+    static boolean isBetter(String word, long weight, String bestWord, long bestWeight) {
+        return bestWord == null || weight > bestWeight
+                || (weight == bestWeight && word.compareTo(bestWord) < 0);
+    }
+    
+}
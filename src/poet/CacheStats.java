@@ -0,0 +1,75 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+/**
+ * A snapshot of the counters of one of a poet's caches. Immutable.
+ */
+public final class CacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+    private final int size;
+    private final long bytes;
+
+    /*	Abstraction function:
+     * 		The counters and size of a cache at one moment, as named
+     */
+
+    /*	Representation invariant:
+     * 		every field is nonnegative
+     */
+
+    /*	Safety from rep exposure:
+     * 		All fields are private, final and primitive
+     */
+
+    CacheStats(long hits, long misses, long evictions, long invalidations, int size, long bytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.size = size;
+        this.bytes = bytes;
+    }
+
+    /** @return number of lookups that found an entry */
+    public long hits() {
+        return hits;
+    }
+
+    /** @return number of lookups that found no entry */
+    public long misses() {
+        return misses;
+    }
+
+    /** @return number of entries dropped to stay within the cache's bounds */
+    public long evictions() {
+        return evictions;
+    }
+
+    /** @return number of times the cache was emptied because the graph changed */
+    public long invalidations() {
+        return invalidations;
+    }
+
+    /** @return number of entries in the cache */
+    public int size() {
+        return size;
+    }
+
+    /** @return estimated number of heap bytes taken by the entries */
+    public long bytes() {
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d misses=%d evictions=%d invalidations=%d size=%d bytes=%d",
+                hits, misses, evictions, invalidations, size, bytes);
+    }
+
+}
@@ -0,0 +1,103 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits a stream of corpus text into lower-case words.
+ * 
+ * <p>A word is a maximal run of ASCII letters, digits, underscores and
+ * apostrophes (the regular expression {@code [\w']+}); every other
+ * character, including line breaks, separates words. The text is read in
+ * fixed-size chunks, so memory use does not depend on the length of the
+ * stream. Mutable, and not safe for use by several threads at once.
+ */
+final class CorpusTokenizer implements WordSource {
+    
+    private static final int CHUNK = 8192;
+    
+    private final Reader in;
+    private final char[] buffer = new char[CHUNK];
+    private final StringBuilder word = new StringBuilder();
+    private int position = 0;
+    private int limit = 0;
+    
+    /*	Abstraction function:
+     * 		The sequence of words in the rest of the stream: the characters
+     * 		buffer[position..limit) followed by whatever is left in in
+     */
+    
+    /*	Representation invariant:
+     * 		0 <= position <= limit <= buffer.length, and limit == 0 once in
+     * 		is exhausted; word is empty between calls to next()
+     */
+    
+    /*	Safety from rep exposure:
+     * 		All fields are private; next() returns new immutable Strings
+     */
+    
+    /**
+     * Create a tokenizer over a stream of text. The tokenizer does its own
+     * buffering, and does not close the stream.
+     * 
+     * @param in text to split into words
+     */
+    CorpusTokenizer(Reader in) {
+        this.in = in;
+        checkRep();
+    }
+    
+    private void checkRep() {
+        assert 0 <= position && position <= limit && limit <= buffer.length;
+        assert word.length() == 0;
+    }
+    
+    @Override
+    public String next() throws IOException {
+        while (true) {
+            if (position == limit) {
+                limit = in.read(buffer);
+                position = 0;
+                if (limit < 0) {
+                    limit = 0;
+                    return takeWord();
+                }
+            }
+            char c = buffer[position++];
+            if (isWordChar(c)) {
+                word.append(toLowerCase(c));
+            } else if (word.length() > 0) {
+                return takeWord();
+            }
+        }
+    }
+    
+    /** Take the word read so far, or null if there is none; every next() ends here. */
+    private String takeWord() {
+        String result = word.length() == 0 ? null : word.toString();
+        word.setLength(0);
+        checkRep();
+        return result;
+    }
+    
+    /**
+     * @param c a character
+     * @return true iff c matches the character class {@code [\w']}
+     */
+    static boolean isWordChar(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == '\'';
+    }
+    
+    /**
+     * @param c a word character
+     * @return c in lower case
+     */
+    static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+    
+}
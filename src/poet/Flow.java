@@ -0,0 +1,98 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+/**
+ * Interfaces for reactive streams with backpressure: a Publisher produces
+ * items for a Subscriber, which receives no more of them than it has
+ * requested through its Subscription.
+ *
+ * <p>These are the interfaces, and follow the rules, of
+ * java.util.concurrent.Flow, which is not part of the Java 8 platform this
+ * project is built for. Moving to that class only needs the imports changed.
+ */
+public final class Flow {
+
+    private Flow() {
+        throw new AssertionError("not instantiable");
+    }
+
+    /**
+     * A producer of items received by Subscribers.
+     *
+     * @param <T> type of items published
+     */
+    @FunctionalInterface
+    public interface Publisher<T> {
+
+        /**
+         * Add a subscriber, which is sent onSubscribe() and then, as it
+         * requests them, items, until onComplete() or onError().
+         *
+         * @param subscriber the subscriber
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items. Its methods are called one at a time, in the
+     * order onSubscribe, onNext*, (onComplete | onError).
+     *
+     * @param <T> type of items received
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * Start the subscription; no items are sent until some are
+         * requested through it.
+         *
+         * @param subscription the new subscription
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Receive the next item, which was requested.
+         *
+         * @param item the item, not null
+         */
+        void onNext(T item);
+
+        /**
+         * End the subscription after an unrecoverable error.
+         *
+         * @param throwable the error
+         */
+        void onError(Throwable throwable);
+
+        /** End the subscription after every item has been sent. */
+        void onComplete();
+    }
+
+    /** The link between a Publisher and one of its Subscribers. */
+    public interface Subscription {
+
+        /**
+         * Allow n more items to be sent to the subscriber. A nonpositive n
+         * ends the subscription with an IllegalArgumentException sent to
+         * onError().
+         *
+         * @param n number of additional items wanted
+         */
+        void request(long n);
+
+        /** Stop sending items to the subscriber, eventually. */
+        void cancel();
+    }
+
+    /**
+     * A stage that is both a Subscriber and a Publisher, transforming the
+     * items it receives into the items it publishes.
+     *
+     * @param <T> type of items received
+     * @param <R> type of items published
+     */
+    public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+    }
+
+}
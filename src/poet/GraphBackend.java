@@ -0,0 +1,127 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.function.Supplier;
+
+import graph.CompactGraph;
+import graph.ConcurrentGraph;
+import graph.FrozenGraph;
+import graph.Graph;
+import graph.SymbolTable;
+
+/**
+ * A strategy for storing a poet's affinity graph: the graph the word pairs
+ * of a corpus are counted into, and the graph the poet reads from while it
+ * writes poems, which may be the same one.
+ *
+ * <p>The graph served must be safe to read from several threads at once as
+ * long as nobody mutates it, as every Graph implementation in this project
+ * is; only a concurrent backend's graph is mutated after the poet is built.
+ */
+public interface GraphBackend {
+
+    /**
+     * @return a new empty graph to count word pairs into, which is not
+     *         referenced anywhere else
+     */
+    Graph<String> create();
+
+    /**
+     * Prepare a graph for serving poems, once the corpus has been counted
+     * into it. The default serves the graph itself.
+     *
+     * @param counted a graph returned by create(), with the word pairs of
+     *        a corpus added
+     * @return the graph to serve poems from, which is not referenced
+     *         anywhere else except possibly as counted
+     */
+    default Graph<String> serve(Graph<String> counted) {
+        return counted;
+    }
+
+    /**
+     * @return true iff the served graph is safe to mutate from several
+     *         threads while others read it, so that a poet can keep adding
+     *         text to it; false by default
+     */
+    default boolean isConcurrent() {
+        return false;
+    }
+
+    /**
+     * Count into a CompactGraph, and serve an immutable {@link FrozenGraph}
+     * snapshot of it: the fastest and most compact choice for serving, and
+     * the one poets use by default.
+     *
+     * @return the frozen backend
+     */
+    static GraphBackend frozen() {
+        return shared(null);
+    }
+
+    /**
+     * Like {@link #frozen()}, but count into a CompactGraph over a symbol
+     * table that may be shared, so that poets over corpora with many words
+     * in common store each word once. The table keeps every word counted
+     * into it for as long as it is reachable, and each graph's per-vertex
+     * arrays are sized by the largest id of its words, which are numbered
+     * by the table in the order it first saw them; so share one only among
+     * corpora of similar vocabularies.
+     *
+     * @param vocabulary table to intern words in, or null for each graph
+     *        to have its own
+     * @return the backend over vocabulary
+     */
+    static GraphBackend shared(SymbolTable<String> vocabulary) {
+        return new GraphBackend() {
+            @Override public Graph<String> create() {
+                return new CompactGraph<>(vocabulary);
+            }
+            @Override public Graph<String> serve(Graph<String> counted) {
+                return FrozenGraph.freeze(counted);
+            }
+        };
+    }
+
+    /**
+     * Count into and serve a {@link ConcurrentGraph}, so that text can be
+     * added to the poet while it writes poems.
+     *
+     * @return the concurrent backend
+     */
+    static GraphBackend concurrent() {
+        return new GraphBackend() {
+            @Override public Graph<String> create() {
+                return new ConcurrentGraph<>();
+            }
+            @Override public boolean isConcurrent() {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Count into and serve a CompactGraph, a hash-indexed graph for general
+     * use that skips the copy made by {@link #frozen()}.
+     *
+     * @return the compact backend
+     */
+    static GraphBackend compact() {
+        return of(CompactGraph::new);
+    }
+
+    /**
+     * Count into and serve graphs made by a factory, such as
+     * {@code Graph::empty} or {@code ConcreteEdgesGraph::new}.
+     *
+     * @param factory makes a new empty graph, not referenced anywhere else,
+     *        every time it is called
+     * @return a backend using the factory's graphs
+     */
+    static GraphBackend of(Supplier<? extends Graph<String>> factory) {
+        return factory::get;
+    }
+
+}
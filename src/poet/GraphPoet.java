@@ -3,23 +3,32 @@
  */
 package poet;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.net.URI;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
 import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import graph.ConcreteEdgesGraph;
+import graph.CompactGraph;
+import graph.EdgeBatch;
+import graph.FrozenGraph;
+import graph.Graph;
+import graph.GraphFile;
+import graph.MappedGraph;
+import graph.SymbolTable;
 
 /**
  * A graph-based poetry generator.
@@ -45,6 +54,8 @@ import graph.ConcreteEdgesGraph;
  * The bridge word between input words "w1" and "w2" will be some "b" such that
  * w1 -> b -> w2 is a two-edge-long path with maximum-weight weight among all
  * the two-edge-long paths from w1 to w2 in the affinity graph.
+ * If several paths have the maximum weight, the bridge word that comes first
+ * in {@link String#compareTo(String) String order} is chosen.
  * If there are no such paths, no bridge word is inserted.
  * In the output poem, input words retain their original case, while bridge
  * words are lower case. The whitespace between every word in the poem is a
@@ -57,6 +68,21 @@ import graph.ConcreteEdgesGraph;
  * <p>the output poem would be:
  * <pre>    Test of the system.    </pre>
  * 
+ * <p>A poet created by {@link #appendable(File)}, or with a concurrent
+ * {@link GraphBackend}, keeps learning: text added with
+ * {@link #append(CharSequence)} or {@link #ingest(Reader)} adds its adjacent
+ * word pairs to the graph, and later poems use them. Text may be added from
+ * many threads at once while other threads write poems.
+ * 
+ * <p>A {@link GraphBackend} chooses how the graph is stored: by default as
+ * a compact immutable snapshot, which is the fastest to read, or for
+ * example in a concurrent graph that more text can be added to.
+ * 
+ * <p>Each poet's graph holds its own words, which are freed with the poet.
+ * Poets over corpora with many words in common can store each word once
+ * instead, with a backend over one shared vocabulary, such as
+ * {@link GraphBackend#shared(SymbolTable)}.
+ * 
  * <p>PS2 instructions: this is a required ADT class, and you MUST NOT weaken
  * the required specifications. However, you MAY strengthen the specifications
  * and you MAY add additional methods.
@@ -65,7 +91,32 @@ import graph.ConcreteEdgesGraph;
  */
 public class GraphPoet {
     
-    private final ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+    // Word pairs whose bridges poems() looks up in one task
+    private static final int PAIRS_PER_TASK = 256;
+    
+    // Characters read at a time by the streaming poem()
+    private static final int STREAM_CHUNK = 8192;
+    
+    // Word pairs added to the graph at a time while reading a corpus, so
+    // that appended text reaches poems without waiting for its end
+    private static final int BIGRAM_BATCH = 4096;
+    
+    private final Graph<String> graph;
+    
+    // Precomputed best bridges, or null if the poet has no index
+    private final BridgeIndex bridges;
+    
+    // True iff more text can be added to graph
+    private final boolean appendable;
+    
+    // Number of times text has been added to graph, shared by the poets
+    // made from this one by cached()
+    private final AtomicLong version;
+    
+    // Poems by input and bridges by "w1 w2" ("" for none), or null if the
+    // poet has no caches
+    private final LruCache poemCache;
+    private final LruCache bridgeCache;
     
     /*	Abstraction function:
      * 		A function that takes an input and converts it into
@@ -74,12 +125,32 @@ public class GraphPoet {
     
     /*	Representation invariant:
      * 		Graph that has immutable types as Vertices and is non-null
+     * 		If bridges is non-null, it is the bridge index of graph
+     * 		graph is safe for concurrent mutation if appendable, and is
+     * 		never mutated otherwise; bridges is null unless graph is a
+     * 		FrozenGraph
+     * 		version only changes if appendable
+     * 		poemCache and bridgeCache are both null or both non-null, and
+     * 		hold poems and bridges of graph at the versions they name
      */   	
     
     /*	Safety from rep exposure:
      * 		- Graph is private and final
      * 		- No instance of Graph is exposed to the client for mutation
      * 		- Vertices of Graph are immutable
+     * 		- The graph is created for this poet alone, by a backend or by
+     * 		  loading a graph file, and only appendable poets mutate it
+     */
+    
+    /*	Thread safety argument:
+     * 		- A bridge index is immutable, and a graph that is never mutated
+     * 		  is safe to read from several threads
+     * 		- An appendable poet's graph comes from a concurrent backend, so
+     * 		  it is thread-safe; each append and poem uses its own tokenizer
+     * 		  and BridgeSearch
+     * 		- version is atomic, and the caches are thread-safe; a poem
+     * 		  written while text is added is cached under the version from
+     * 		  before, which the cache drops once it sees the new version
      */
     
     /**
@@ -89,13 +160,265 @@ public class GraphPoet {
      * @throws IOException if the corpus file cannot be found or read
      */
     public GraphPoet(File corpus) throws IOException {
-    	List<String> listOfWords = getWordsFromTextFile(corpus);
-		for (int i = 0; i < listOfWords.size() - 1; i++) {
-			String source = listOfWords.get(i);
-			String target = listOfWords.get(i + 1);
-			int prev = graph.set(source, target, 1);
-            graph.set(source, target, prev + 1);
-		}
+    	this(corpus, GraphBackend.frozen());
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus (as described above),
+     * stored as chosen by a backend. The poet writes the same poems whatever
+     * the backend; it is appendable iff the backend is concurrent.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param backend how to store the graph
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(File corpus, GraphBackend backend) throws IOException {
+    	this(backend.serve(readCorpus(corpus, backend.create())), backend.isConcurrent());
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus (as described above), and
+     * precompute the best bridge word for up to maxIndexedPairs pairs of
+     * words so that poem() can look them up instead of searching the graph.
+     * 
+     * <p>The index is built in one pass over the graph, taking time
+     * proportional to the number of two-edge paths in it. When the graph has
+     * more bridged pairs than maxIndexedPairs, the pairs with the heaviest
+     * paths are kept and the others are searched for as usual, so the poems
+     * are the same as without the index.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param maxIndexedPairs maximum number of word pairs to keep in the
+     *        bridge index, nonnegative
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(File corpus, int maxIndexedPairs) throws IOException {
+    	this(readCorpus(corpus, GraphBackend.frozen().create()), maxIndexedPairs, true);
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus (as described above),
+     * counting the word pairs of the corpus on several threads. The poet is
+     * the same as one created by {@link #GraphPoet(File)}.
+     * 
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param parallelism number of threads to count with, positive
+     * @return a new poet
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static GraphPoet parallel(File corpus, int parallelism) throws IOException {
+    	CompactGraph<String> corpusGraph = new CompactGraph<>();
+    	ForkJoinPool pool = new ForkJoinPool(parallelism);
+    	try {
+    		ParallelCorpusBuilder.addBigrams(new MappedCorpus(corpus), corpusGraph, pool);
+    	} finally {
+    		pool.shutdown();
+    	}
+    	return new GraphPoet(corpusGraph, 0, false);
+    }
+    
+    /**
+     * Create a new poet with the graph from corpus (as described above), to
+     * which more text can be added by {@link #append(CharSequence)} and
+     * {@link #ingest(Reader)}.
+     * 
+     * @param corpus text file from which to derive the poet's initial
+     *        affinity graph
+     * @return a new appendable poet
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public static GraphPoet appendable(File corpus) throws IOException {
+    	return new GraphPoet(corpus, GraphBackend.concurrent());
+    }
+    
+    /**
+     * Create a new poet from an affinity graph saved by {@link #save(File)},
+     * without reading the corpus again. The poet is the same as the one that
+     * was saved, except that it is not appendable.
+     * 
+     * @param graphFile graph file written by save()
+     * @return a new poet
+     * @throws IOException if the file cannot be read, is not a graph file,
+     *         or fails its checksum
+     */
+    public static GraphPoet load(File graphFile) throws IOException {
+    	return new GraphPoet(GraphFile.open(graphFile).load(), 0, false);
+    }
+    
+    /**
+     * Create a new poet that reads an affinity graph saved by
+     * {@link #save(File)} in place, through a memory mapping, instead of
+     * loading it onto the heap. It writes the same poems as
+     * {@link #load(File)}, more slowly, but starts at once and uses almost
+     * no memory of its own, whatever the size of the graph. The file must
+     * not be modified while the poet is in use.
+     * 
+     * @param graphFile graph file written by save()
+     * @return a new poet
+     * @throws IOException if the file cannot be read or is not a graph file;
+     *         the checksum is not checked
+     */
+    public static GraphPoet mapped(File graphFile) throws IOException {
+    	return new GraphPoet(MappedGraph.open(graphFile), false);
+    }
+    
+    private GraphPoet(Graph<String> corpusGraph, int maxIndexedPairs, boolean indexed) {
+		// the graph is only read from here on
+		graph = FrozenGraph.freeze(corpusGraph);
+		bridges = indexed ? BridgeIndex.build(graph, maxIndexedPairs) : null;
+		appendable = false;
+		version = new AtomicLong();
+		poemCache = null;
+		bridgeCache = null;
+		checkRep();
+    }
+    
+    private GraphPoet(Graph<String> graph, boolean appendable) {
+		this.graph = graph;
+		this.bridges = null;
+		this.appendable = appendable;
+		this.version = new AtomicLong();
+		this.poemCache = null;
+		this.bridgeCache = null;
+		checkRep();
+    }
+    
+    private GraphPoet(GraphPoet poet, LruCache poemCache, LruCache bridgeCache) {
+		this.graph = poet.graph;
+		this.bridges = poet.bridges;
+		this.appendable = poet.appendable;
+		this.version = poet.version;
+		this.poemCache = poemCache;
+		this.bridgeCache = bridgeCache;
+		checkRep();
+    }
+    
+    /**
+     * Create a poet that writes the same poems as this one, from the same
+     * graph, but remembers the poems it has written and the bridges it has
+     * looked up, so that it can return them again without searching the
+     * graph. The least recently used entries are dropped when a cache is
+     * full. If this poet is appendable, so is the new one: text added to
+     * either is added to both, and empties both their caches.
+     * 
+     * @param maxPoems maximum number of poems to remember, nonnegative
+     * @param maxPoemBytes maximum estimated heap bytes of the remembered
+     *        inputs and poems, nonnegative
+     * @param maxBridges maximum number of word pairs whose bridges to
+     *        remember, nonnegative
+     * @return a new poet with caches of those sizes
+     */
+    public GraphPoet cached(int maxPoems, long maxPoemBytes, int maxBridges) {
+    	return new GraphPoet(this, new LruCache(maxPoems, maxPoemBytes), new LruCache(maxBridges, Long.MAX_VALUE));
+    }
+    
+    /**
+     * @return the counters of the cache of poems, all zero if this poet was
+     *         not made by {@link #cached(int, long, int)}
+     */
+    public CacheStats poemCacheStats() {
+    	return poemCache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : poemCache.stats();
+    }
+    
+    /**
+     * @return the counters of the cache of bridges, all zero if this poet
+     *         was not made by {@link #cached(int, long, int)}
+     */
+    public CacheStats bridgeCacheStats() {
+    	return bridgeCache == null ? new CacheStats(0, 0, 0, 0, 0, 0) : bridgeCache.stats();
+    }
+    
+    /**
+     * Add the affinity graph of a corpus file to a graph.
+     * 
+     * @param corpus text file from which to derive the affinity graph
+     * @param corpusGraph graph to add the word pairs of corpus to
+     * @return corpusGraph
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    private static Graph<String> readCorpus(File corpus, Graph<String> corpusGraph) throws IOException {
+    	// scan the mapped corpus in place, so only the graph has to fit in
+    	// memory and each distinct word is allocated once
+    	MappedCorpus mapped = new MappedCorpus(corpus);
+    	addBigrams(corpusGraph, new MappedCorpusTokenizer(mapped, 0, mapped.size(), new Vocabulary()));
+    	return corpusGraph;
+    }
+    
+    /**
+     * Add the adjacent word pairs of some text to this poet's graph. The
+     * text is a piece on its own: its first word is not paired with the last
+     * word of the corpus or of any earlier text. Safe to call from several
+     * threads at once, and while other threads call poem().
+     * 
+     * @param text text to learn from, split into words like the corpus
+     * @throws UnsupportedOperationException if this poet was not created by
+     *         {@link #appendable(File)} or with a concurrent backend
+     */
+    public void append(CharSequence text) {
+    	try {
+    		ingest(new StringReader(text.toString()));
+    	} catch (IOException e) {
+    		throw new AssertionError("StringReader does not throw", e);
+    	}
+    }
+    
+    /**
+     * Add the adjacent word pairs of a stream of text to this poet's graph,
+     * as pairs are read; poems written meanwhile may use some of them. The
+     * text is a piece on its own, as for {@link #append(CharSequence)}. Safe
+     * to call from several threads at once, and while other threads call
+     * poem(). The stream is not closed.
+     * 
+     * @param text stream of text to learn from, split into words like the
+     *        corpus
+     * @throws IOException if the text cannot be read
+     * @throws UnsupportedOperationException if this poet was not created by
+     *         {@link #appendable(File)} or with a concurrent backend
+     */
+    public void ingest(Reader text) throws IOException {
+    	if (!appendable) {
+    		throw new UnsupportedOperationException("poet is not appendable");
+    	}
+    	try {
+    		addBigrams(graph, new CorpusTokenizer(text));
+    	} finally {
+    		// cached poems from before may have changed
+    		version.incrementAndGet();
+    	}
+    }
+    
+    /**
+     * Add the adjacent pairs of a sequence of words to a graph.
+     * 
+     * @param graph graph to which to add one to the weight of the edge w1 ->
+     *        w2 for every word w1 followed by w2 in words
+     * @param words words to read until there are none left
+     * @throws IOException if the words cannot be read
+     */
+    private static void addBigrams(Graph<String> graph, WordSource words) throws IOException {
+    	EdgeBatch<String> batch = new EdgeBatch<>(BIGRAM_BATCH);
+    	String source = words.next();
+    	for (String target = words.next(); target != null; source = target, target = words.next()) {
+    		batch.add(source, target, 1);
+    		if (batch.size() == BIGRAM_BATCH) {
+    			graph.incrementAll(batch);
+    			batch.clear();
+    		}
+    	}
+    	graph.incrementAll(batch);
+    }
+    
+    /**
+     * Save this poet's affinity graph in the binary format of
+     * {@link GraphFile}, so that {@link #load(File)} can recreate the poet.
+     * For an appendable poet, text appended while saving may be partly
+     * saved.
+     * 
+     * @param graphFile file to write, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void save(File graphFile) throws IOException {
+    	GraphFile.write(graph, graphFile);
     }
     
     /**
@@ -103,21 +426,18 @@ public class GraphPoet {
      *	
      *	@author Lalee
      * 	@param	input File to read
-     * 	@return list of words extracted from file
+     * 	@return list of words extracted from file, in lower case; words are
+     * 			runs of the characters [\w'] and never span a line break
      * @throws IOException 
      */
     
 	public List<String> getWordsFromTextFile(File corpus) throws IOException {
-		checkRep();
-		URI uri = corpus.toURI();
 		List<String> words = new ArrayList<String>();
-		List<String> lines = Files.readAllLines(Paths.get(uri));
-		String textFromFile = String.join("", lines);
-		Pattern p = Pattern.compile("[\\w']+");
-		Matcher m = p.matcher(textFromFile);
-
-		while (m.find()) {
-			words.add(textFromFile.substring(m.start(), m.end()).toLowerCase());
+		try (Reader in = Files.newBufferedReader(corpus.toPath())) {
+			CorpusTokenizer tokenizer = new CorpusTokenizer(in);
+			for (String word = tokenizer.next(); word != null; word = tokenizer.next()) {
+				words.add(word);
+			}
 		}
 		return words;
 	}
@@ -125,6 +445,10 @@ public class GraphPoet {
     // TODO checkRep
 	private void checkRep() {
 		assert graph != null;
+		assert !appendable || bridges == null;
+		assert bridges == null || graph instanceof FrozenGraph;
+		assert appendable || version.get() == 0;
+		assert (poemCache == null) == (bridgeCache == null);
 	}
     
     /**
@@ -136,38 +460,295 @@ public class GraphPoet {
     
     // TODO toString()
     public String poem(String input) {
-    	System.out.println(input);
-    	String[] inputWords = input.split("\\s");
-        StringBuilder poem = new StringBuilder(input);
-        int fromIndex = 0;
+        long version = this.version.get();
+        if (poemCache != null) {
+            String poem = poemCache.get(input, version);
+            if (poem != null) {
+                return poem;
+            }
+        }
+        int[] spans = wordSpans(input);
+        BridgeSearch search = new BridgeSearch(graph);
+        String[] bridges = new String[Math.max(0, spans.length / 2 - 1)];
+        String previous = bridges.length > 0 ? lowerWord(input, spans, 0) : null;
+        for (int i = 0; i < bridges.length; i++) {
+            String next = lowerWord(input, spans, i + 1);
+            bridges[i] = bridge(previous, next, search, version);
+            previous = next;
+        }
+        String poem = assemble(input, spans, bridges);
+        if (poemCache != null) {
+            poemCache.put(input, poem, version);
+        }
+        checkRep();
+        return poem;
+    }
+    
+    /**
+     * Generate a poem from a stream of text, writing it to another stream as
+     * the input is read. The poem is the one {@link #poem(String)} would
+     * write for the whole input, but only the word being read is held in
+     * memory: each word is written, after its bridge from the word before,
+     * as soon as it ends. Neither stream is closed or flushed.
+     * 
+     * @param in input from which to create the poem
+     * @param out stream to write the poem to
+     * @throws IOException if the input cannot be read or the poem cannot be
+     *         written
+     */
+    public void poem(Reader in, Writer out) throws IOException {
+        long version = this.version.get();
+        BridgeSearch search = new BridgeSearch(graph);
+        char[] buffer = new char[STREAM_CHUNK];
+        StringBuilder word = new StringBuilder();
+        // the word before, in lower case, or null at the start
+        String previous = null;
+        for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+            for (int i = 0; i < n; i++) {
+                char c = buffer[i];
+                if (!isSpace(c)) {
+                    word.append(c);
+                } else if (word.length() > 0) {
+                    previous = writeWord(word.toString(), previous, search, version, out);
+                    word.setLength(0);
+                }
+            }
+        }
+        if (word.length() > 0) {
+            writeWord(word.toString(), previous, search, version, out);
+        }
+        checkRep();
+    }
+    
+    /**
+     * Write the next word of a poem, after the bridge to it.
+     * 
+     * @param word word of the input
+     * @param previous word of the input before word, in lower case, or null
+     *        if word is the first
+     * @param search search over graph to find the bridge with
+     * @param version version of graph that search reads
+     * @param out stream to write the poem to
+     * @return word in lower case
+     * @throws IOException if the poem cannot be written
+     */
+    private String writeWord(String word, String previous, BridgeSearch search, long version, Writer out)
+            throws IOException {
+        String lower = word.toLowerCase();
+        if (previous != null) {
+            out.write(' ');
+            String bridge = bridge(previous, lower, search, version);
+            if (bridge != null) {
+                out.write(bridge);
+                out.write(' ');
+            }
+        }
+        out.write(word);
+        return lower;
+    }
+    
+    /**
+     * Generate a poem for each of a batch of inputs, as {@link #poem(String)}
+     * would. The inputs are split into words once, and the bridge between
+     * each distinct pair of words in the batch is looked up once.
+     * 
+     * @param inputs strings from which to create poems
+     * @return the poems of the inputs, in the same order
+     */
+    public List<String> poems(List<String> inputs) {
+        return poems(inputs, Runnable::run);
+    }
+    
+    /**
+     * Generate a poem for each of a stream of inputs, as
+     * {@link #poems(List)} does; the whole stream is read as one batch
+     * before the first poem is returned.
+     * 
+     * @param inputs strings from which to create poems
+     * @return the poems of the inputs, in the same order
+     */
+    public Stream<String> poems(Stream<String> inputs) {
+        return poems(inputs.collect(Collectors.toList())).stream();
+    }
+    
+    /**
+     * Generate a poem for each of a batch of inputs, as {@link #poems(List)}
+     * does, with the bridges looked up by tasks run on an executor. The
+     * calling thread waits for the tasks.
+     * 
+     * @param inputs strings from which to create poems
+     * @param executor executor to run the lookups on
+     * @return the poems of the inputs, in the same order
+     */
+    public List<String> poems(List<String> inputs, Executor executor) {
+        long version = this.version.get();
+        // number every distinct pair of lower-case words in the batch
+        Map<String, Integer> pairIds = new HashMap<>();
+        List<String> firsts = new ArrayList<>();
+        List<String> seconds = new ArrayList<>();
+        int[][] inputSpans = new int[inputs.size()][];
+        int[][] inputPairs = new int[inputs.size()][];
+        for (int n = 0; n < inputSpans.length; n++) {
+            String input = inputs.get(n);
+            int[] spans = wordSpans(input);
+            int[] pairs = new int[Math.max(0, spans.length / 2 - 1)];
+            String previous = pairs.length > 0 ? lowerWord(input, spans, 0) : null;
+            for (int i = 0; i < pairs.length; i++) {
+                String next = lowerWord(input, spans, i + 1);
+                Integer id = pairIds.putIfAbsent(previous + ' ' + next, firsts.size());
+                if (id == null) {
+                    pairs[i] = firsts.size();
+                    firsts.add(previous);
+                    seconds.add(next);
+                } else {
+                    pairs[i] = id;
+                }
+                previous = next;
+            }
+            inputSpans[n] = spans;
+            inputPairs[n] = pairs;
+        }
         
-        for (int i = 0; i < inputWords.length; i++) {
-            if (i + 1 >= inputWords.length) {
-                break;
+        String[] found = new String[firsts.size()];
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < found.length; start += PAIRS_PER_TASK) {
+            final int from = start;
+            final int to = Math.min(found.length, start + PAIRS_PER_TASK);
+            tasks.add(CompletableFuture.runAsync(() -> {
+                BridgeSearch search = new BridgeSearch(graph);
+                for (int i = from; i < to; i++) {
+                    found[i] = bridge(firsts.get(i), seconds.get(i), search, version);
+                }
+            }, executor));
+        }
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
-            Map<String, Integer> word1Targets = 
-                    graph.targets(inputWords[i].toLowerCase());
-            Map<String, Integer> word2Sources =
-                    graph.sources(inputWords[i+1].toLowerCase());
-            Set<String> probableBridges = word1Targets.keySet();
-            
-            List<String> allBridges = probableBridges.stream()
-                    .filter(possibleBridge -> word2Sources.containsKey(possibleBridge))
-                    .collect(Collectors.toList());
-            
-            if (!allBridges.isEmpty()) {
-                Random rand = new Random();
-                int  n = rand.nextInt(allBridges.size());
-                String bridge = allBridges.get(n);
-                // get the index of word 2 from the poem
-                int insertAt = poem.indexOf(inputWords[i+1], fromIndex);
-                // insert the bridge word before that word
-                poem.insert(insertAt, bridge + " ");
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
             }
+            throw e;
+        }
+        
+        List<String> poems = new ArrayList<>(inputSpans.length);
+        for (int n = 0; n < inputSpans.length; n++) {
+            String[] bridges = new String[inputPairs[n].length];
+            for (int i = 0; i < bridges.length; i++) {
+                bridges[i] = found[inputPairs[n][i]];
+            }
+            poems.add(assemble(inputs.get(n), inputSpans[n], bridges));
         }
         checkRep();
-        System.out.println(poem.toString());
+        return poems;
+    }
+    
+    /**
+     * Find the words of an input in one pass.
+     * 
+     * @param input string from which to create a poem
+     * @return spans of the maximal runs of non-whitespace characters in
+     *         input, in order: the i-th word is
+     *         input[spans[2*i]..spans[2*i+1])
+     */
+    private static int[] wordSpans(String input) {
+        int[] spans = new int[16];
+        int size = 0;
+        int length = input.length();
+        int i = 0;
+        while (true) {
+            while (i < length && isSpace(input.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                return Arrays.copyOf(spans, size);
+            }
+            int start = i;
+            while (i < length && !isSpace(input.charAt(i))) {
+                i++;
+            }
+            if (size == spans.length) {
+                spans = Arrays.copyOf(spans, size * 2);
+            }
+            spans[size++] = start;
+            spans[size++] = i;
+        }
+    }
+    
+    /** @return true iff c is whitespace, as matched by the regex {@code \s} */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+    
+    /** @return the i-th word of input in lower case, given its wordSpans() */
+    private static String lowerWord(String input, int[] spans, int i) {
+        return input.substring(spans[2*i], spans[2*i+1]).toLowerCase();
+    }
+    
+    /**
+     * Write a poem: the words of an input, each followed by a single space
+     * and the bridge to the next word, if there is one, and separated by
+     * single spaces. The poem is appended to a buffer of exactly its length.
+     * 
+     * @param input string from which to create the poem
+     * @param spans spans of the words of input, from wordSpans()
+     * @param bridges bridges[i] is the bridge between the i-th and (i+1)-th
+     *        words of input, or null if there is none
+     * @return poem of input with those bridges
+     */
+    private static String assemble(String input, int[] spans, String[] bridges) {
+        int length = 0;
+        for (int i = 0; i < spans.length; i += 2) {
+            length += spans[i+1] - spans[i] + 1;
+        }
+        for (String bridge : bridges) {
+            if (bridge != null) {
+                length += bridge.length() + 1;
+            }
+        }
+        StringBuilder poem = new StringBuilder(Math.max(0, length - 1));
+        for (int i = 0; i < spans.length; i += 2) {
+            if (i > 0) {
+                poem.append(' ');
+                String bridge = bridges[i/2 - 1];
+                if (bridge != null) {
+                    poem.append(bridge).append(' ');
+                }
+            }
+            poem.append(input, spans[i], spans[i+1]);
+        }
         return poem.toString();
     }
     
+    /**
+     * Find the bridge word between two words, from the index if it has the
+     * pair, then from the bridge cache, and from the graph otherwise.
+     * 
+     * @param w1 first word, lower case
+     * @param w2 second word, lower case
+     * @param search search over graph to use if the index can't answer
+     * @param version version of graph that search reads
+     * @return the bridge word as described above, or null if there is none
+     */
+    private String bridge(String w1, String w2, BridgeSearch search, long version) {
+        if (bridges != null) {
+            String bridge = bridges.get(w1, w2);
+            if (bridge != null || bridges.isComplete()) {
+                return bridge;
+            }
+        }
+        if (bridgeCache == null) {
+            return search.find(w1, w2);
+        }
+        String pair = w1 + ' ' + w2;
+        String bridge = bridgeCache.get(pair, version);
+        if (bridge == null) {
+            bridge = search.find(w1, w2);
+            bridgeCache.put(pair, bridge == null ? "" : bridge, version);
+        }
+        return bridge == null || bridge.isEmpty() ? null : bridge;
+    }
+    
 }
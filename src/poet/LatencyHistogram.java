@@ -0,0 +1,147 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds, with buckets whose width grows
+ * with their values so that every value is counted within 1/8 of itself.
+ * Recording takes constant time and no locks, and the histogram takes a
+ * few KB whatever the number of values.
+ *
+ * <p>Safe for use by several threads at once. Values recorded while a
+ * percentile is computed may or may not be counted in it.
+ */
+public final class LatencyHistogram {
+
+    // Each power of two above SUB_BUCKETS is split into SUB_BUCKETS buckets
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /*	Abstraction function:
+     * 		The multiset of recorded values, where counts[i] values are
+     * 		between lower(i) and upper(i) inclusive; count of them in all,
+     * 		summing to sum, the largest being max
+     */
+
+    /*	Representation invariant:
+     * 		count is the sum of counts, once every record() has returned
+     * 		0 <= max <= sum
+     */
+
+    /*	Safety from rep exposure:
+     * 		All fields are private and never returned
+     */
+
+    /*	Thread safety argument:
+     * 		All fields are final references to atomic counters, each of
+     * 		which record() updates atomically
+     */
+
+    /**
+     * Record a value.
+     *
+     * @param nanos a latency in nanoseconds; negative values count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /** @return number of values recorded */
+    public long count() {
+        return count.get();
+    }
+
+    /** @return largest value recorded, or 0 if none is */
+    public long max() {
+        return max.get();
+    }
+
+    /** @return mean of the values recorded, or 0 if none is */
+    public double mean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @param percent percentage, between 0 and 100
+     * @return the smallest bucket bound that at least percent percent of
+     *         the values recorded are at most, capped at max(); 0 if no
+     *         value is recorded
+     */
+    public long percentile(double percent) {
+        if (!(percent >= 0 && percent <= 100)) {
+            throw new IllegalArgumentException("percentile " + percent);
+        }
+        long target = Math.max(1, (long) Math.ceil(percent / 100 * count.get()));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(upper(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Write the buckets that hold values, one per line in increasing
+     * order, as their lower and upper bounds in nanoseconds and their
+     * count, separated by tabs.
+     *
+     * @param out where to write the buckets
+     */
+    public void writeBuckets(StringBuilder out) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = counts.get(i);
+            if (n > 0) {
+                out.append(lower(i)).append('\t').append(upper(i)).append('\t').append(n).append('\n');
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                count(), mean() / 1e3, percentile(50) / 1e3, percentile(90) / 1e3, percentile(99) / 1e3,
+                percentile(99.9) / 1e3, max() / 1e3);
+    }
+
+    /** @return index of the bucket holding a nonnegative value */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /** @return smallest value in bucket i */
+    private static long lower(int i) {
+        if (i < SUB_BUCKETS) {
+            return i;
+        }
+        int shift = i / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + i % SUB_BUCKETS) << shift;
+    }
+
+    /** @return largest value in bucket i */
+    private static long upper(int i) {
+        return i + 1 < BUCKETS ? lower(i + 1) - 1 : Long.MAX_VALUE;
+    }
+
+}
@@ -0,0 +1,142 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of strings computed from a graph, bounded by number of entries and
+ * by estimated bytes, which evicts the least recently used entries first.
+ *
+ * <p>Every lookup and insertion names the version of the graph it is for.
+ * When that version differs from the version of the entries in the cache,
+ * the graph has changed since they were computed: the cache is emptied
+ * before a newer version is used, and an insertion for another version is
+ * ignored, so an entry is only ever returned for the version it was
+ * computed from.
+ *
+ * <p>Safe for use by several threads at once; every operation holds this
+ * object's lock.
+ */
+final class LruCache {
+
+    // Estimated bytes of an entry besides the chars of its strings: the
+    // map entry and two String objects with their arrays
+    private static final long ENTRY_OVERHEAD = 40 + 2 * (24 + 16);
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<String, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long version = 0;
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    /*	Abstraction function:
+     * 		The cache of entries, computed from version version of the
+     * 		graph, in order from least to most recently used
+     */
+
+    /*	Representation invariant:
+     * 		entries.size() <= maxEntries, bytes <= maxBytes, and bytes is
+     * 		the sum of the sizes of the entries
+     */
+
+    /*	Safety from rep exposure:
+     * 		All fields are private and never returned; Strings are immutable
+     */
+
+    /*	Thread safety argument:
+     * 		All fields are only accessed while holding this object's lock
+     */
+
+    /**
+     * @param maxEntries maximum number of entries, nonnegative
+     * @param maxBytes maximum estimated bytes of the entries, nonnegative
+     */
+    LruCache(int maxEntries, long maxBytes) {
+        if (maxEntries < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("negative cache bound");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    private void checkRep() {
+        assert entries.size() <= maxEntries && bytes <= maxBytes;
+    }
+
+    /**
+     * Look up an entry, making it the most recently used.
+     *
+     * @param key key to look up
+     * @param version current version of the graph
+     * @return the value cached for key and version, or null if none is
+     */
+    synchronized String get(String key, long version) {
+        invalidateBefore(version);
+        String value = this.version == version ? entries.get(key) : null;
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Add an entry, evicting the least recently used entries to make room.
+     * An entry too big for the cache by itself is not added.
+     *
+     * @param key key of the entry
+     * @param value value of the entry
+     * @param version version of the graph the value was computed from
+     */
+    synchronized void put(String key, String value, long version) {
+        invalidateBefore(version);
+        long size = size(key, value);
+        if (this.version != version || size > maxBytes || maxEntries == 0) {
+            return;
+        }
+        String previous = entries.put(key, value);
+        if (previous != null) {
+            bytes -= size(key, previous);
+        }
+        bytes += size;
+        for (Iterator<Map.Entry<String, String>> it = entries.entrySet().iterator();
+                entries.size() > maxEntries || bytes > maxBytes;) {
+            Map.Entry<String, String> eldest = it.next();
+            bytes -= size(eldest.getKey(), eldest.getValue());
+            it.remove();
+            evictions++;
+        }
+        checkRep();
+    }
+
+    /** @return a snapshot of this cache's counters */
+    synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, invalidations, entries.size(), bytes);
+    }
+
+    /** Empty the cache if its entries are older than version. */
+    private void invalidateBefore(long version) {
+        if (version > this.version) {
+            if (!entries.isEmpty()) {
+                entries.clear();
+                invalidations++;
+            }
+            bytes = 0;
+            this.version = version;
+        }
+    }
+
+    private static long size(String key, String value) {
+        return ENTRY_OVERHEAD + 2L * (key.length() + value.length());
+    }
+
+}
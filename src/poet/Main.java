@@ -14,12 +14,17 @@ import java.io.IOException;
 public class Main {
     
     /**
-     * Generate example poetry.
+     * Generate example poetry, or with arguments, serve poems over HTTP.
      * 
-     * @param args unused
+     * @param args none for the example, or arguments for
+     *        {@link PoemServer#main(String[])}
      * @throws IOException if a poet corpus file cannot be found or read
      */
     public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            PoemServer.main(args);
+            return;
+        }
         final GraphPoet nimoy = new GraphPoet(new File("src/poet/mugar-omni-theater.txt"));
         final String input = "Test the system.";
         System.out.println(input + "\n>>>\n" + nimoy.poem(input));
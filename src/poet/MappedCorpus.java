@@ -0,0 +1,92 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The bytes of a corpus file, memory-mapped for reading.
+ * 
+ * <p>Files larger than a single mapping can hold are mapped in several
+ * regions. Bytes are only read with absolute gets, which never change the
+ * state of the mappings, so one MappedCorpus can be read by many threads at
+ * once. Immutable.
+ */
+final class MappedCorpus {
+    
+    // Files are mapped in regions of 2^REGION_BITS bytes
+    private static final int REGION_BITS = 30;
+    private static final long REGION_MASK = (1L << REGION_BITS) - 1;
+    
+    private final MappedByteBuffer[] regions;
+    private final long size;
+    
+    /*	Abstraction function:
+     * 		The bytes of regions[0], regions[1], ... in order, size in all
+     */
+    
+    /*	Representation invariant:
+     * 		every region but the last has 2^REGION_BITS bytes, and the
+     * 		regions have size bytes in all
+     */
+    
+    /*	Safety from rep exposure:
+     * 		regions is private and never returned, and the buffers are only
+     * 		read with absolute gets
+     */
+    
+    /**
+     * Map a corpus file.
+     * 
+     * @param corpus file to map
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    MappedCorpus(File corpus) throws IOException {
+        // the mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(corpus.toPath(), StandardOpenOption.READ)) {
+            size = channel.size();
+            regions = new MappedByteBuffer[(int) ((size + REGION_MASK) >>> REGION_BITS)];
+            for (int i = 0; i < regions.length; i++) {
+                long start = (long) i << REGION_BITS;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(REGION_MASK + 1, size - start));
+            }
+        }
+    }
+    
+    /** @return number of bytes in the corpus */
+    long size() {
+        return size;
+    }
+    
+    /**
+     * @param position index of a byte, 0 <= position < size()
+     * @return the byte at position
+     */
+    byte get(long position) {
+        return regions[(int) (position >>> REGION_BITS)].get((int) (position & REGION_MASK));
+    }
+    
+    /**
+     * Find the first position at or after a given one that does not fall
+     * inside a word, so that the corpus can be split there.
+     * 
+     * @param position index, 0 <= position <= size()
+     * @return the least p >= position such that p is 0 or size(), or one of
+     *         the bytes at p - 1 and p is not a word byte
+     */
+    long wordBoundary(long position) {
+        long p = position;
+        while (p > 0 && p < size && CorpusTokenizer.isWordChar(get(p - 1))
+                && CorpusTokenizer.isWordChar(get(p))) {
+            p++;
+        }
+        return p;
+    }
+    
+}
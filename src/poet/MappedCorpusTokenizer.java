@@ -0,0 +1,117 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Splits a corpus file into lower-case words by memory-mapping it and
+ * scanning its bytes in place.
+ * 
+ * <p>The file is read as UTF-8 (or any ASCII-compatible encoding). Words are
+ * maximal runs of the ASCII bytes {@code [\w']}; every other byte, including
+ * the bytes of non-ASCII characters, separates words, which gives the same
+ * words as {@link CorpusTokenizer} for UTF-8 text. A String is only created
+ * the first time a word is seen; later occurrences return the same instance
+ * from the tokenizer's vocabulary. Mutable, and not safe for use by several
+ * threads at once.
+ */
+final class MappedCorpusTokenizer implements WordSource {
+    
+    private final MappedCorpus corpus;
+    private final long end;
+    private final Vocabulary vocabulary;
+    private long position;
+    
+    // Lower-case bytes and hash of the word being scanned
+    private byte[] word = new byte[64];
+    private int length = 0;
+    private int hash = 0;
+    
+    /*	Abstraction function:
+     * 		The sequence of words in word[0..length) followed by the bytes
+     * 		of corpus in [position, end)
+     */
+    
+    /*	Representation invariant:
+     * 		position <= end <= corpus.size()
+     * 		hash == Vocabulary hash of word[0..length)
+     */
+    
+    /*	Safety from rep exposure:
+     * 		All fields are private; next() returns immutable Strings
+     */
+    
+    /**
+     * Map a corpus file for reading.
+     * 
+     * @param corpus file to split into words
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    MappedCorpusTokenizer(File corpus) throws IOException {
+        this(new MappedCorpus(corpus));
+    }
+    
+    /**
+     * Read the words of a whole mapped corpus.
+     * 
+     * @param corpus mapped corpus to split into words
+     */
+    MappedCorpusTokenizer(MappedCorpus corpus) {
+        this(corpus, 0, corpus.size(), new Vocabulary());
+    }
+    
+    /**
+     * Read the words of part of a mapped corpus. The part should start and
+     * end at word boundaries, or words will be cut.
+     * 
+     * @param corpus mapped corpus to split into words
+     * @param start index of the first byte to read
+     * @param end index after the last byte to read,
+     *        start <= end <= corpus.size()
+     * @param vocabulary words seen so far; words read are added to it
+     */
+    MappedCorpusTokenizer(MappedCorpus corpus, long start, long end, Vocabulary vocabulary) {
+        this.corpus = corpus;
+        this.position = start;
+        this.end = end;
+        this.vocabulary = vocabulary;
+    }
+    
+    @Override
+    public String next() {
+        while (position < end) {
+            byte b = corpus.get(position++);
+            if (CorpusTokenizer.isWordChar(b)) {
+                append(b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b);
+            } else if (length > 0) {
+                return takeWord();
+            }
+        }
+        return length > 0 ? takeWord() : null;
+    }
+    
+    /** @return number of distinct words seen so far */
+    int vocabularySize() {
+        return vocabulary.size();
+    }
+    
+    private void append(byte b) {
+        if (length == word.length) {
+            word = Arrays.copyOf(word, length * 2);
+        }
+        word[length++] = b;
+        hash = Vocabulary.hash(hash, b);
+    }
+    
+    private String takeWord() {
+        String result = vocabulary.intern(word, length, hash);
+        length = 0;
+        hash = 0;
+        return result;
+    }
+    
+}
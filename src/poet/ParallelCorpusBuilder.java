@@ -0,0 +1,166 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import graph.EdgeBatch;
+import graph.Graph;
+
+/**
+ * Counts the adjacent word pairs of a corpus in parallel.
+ * 
+ * <p>The mapped corpus is split into chunks at word boundaries. Each chunk is
+ * tokenized and its pairs counted into a map of its own by a fork-join task;
+ * the counts of neighbouring chunks are then merged, adding the pair made of
+ * the last word of one chunk and the first word of the next. The result is
+ * the same as counting the whole corpus in order.
+ */
+final class ParallelCorpusBuilder {
+    
+    // Chunks smaller than this aren't worth a task of their own
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    
+    // Chunks per worker thread, so uneven chunks still balance
+    private static final int CHUNKS_PER_THREAD = 4;
+    
+    private ParallelCorpusBuilder() {
+        throw new AssertionError("not instantiable");
+    }
+    
+    /**
+     * Count the word pairs of a corpus in parallel and add them to a graph.
+     * 
+     * @param corpus mapped corpus
+     * @param graph graph to which to add, for every word w1 followed by w2
+     *        in the corpus, the number of times that happens to the weight of
+     *        the edge w1 -> w2
+     * @param pool pool in which to run the counting tasks
+     */
+    static void addBigrams(MappedCorpus corpus, Graph<String> graph, ForkJoinPool pool) {
+        long chunks = Math.min(pool.getParallelism() * (long) CHUNKS_PER_THREAD,
+                Math.max(1, corpus.size() / MIN_CHUNK_SIZE));
+        addBigrams(corpus, graph, pool, (int) chunks);
+    }
+    
+    /**
+     * Count the word pairs of a corpus in parallel and add them to a graph.
+     * 
+     * @param corpus mapped corpus
+     * @param graph graph to which to add, for every word w1 followed by w2
+     *        in the corpus, the number of times that happens to the weight of
+     *        the edge w1 -> w2
+     * @param pool pool in which to run the counting tasks
+     * @param chunks number of chunks to split the corpus into, positive
+     */
+    static void addBigrams(MappedCorpus corpus, Graph<String> graph, ForkJoinPool pool, int chunks) {
+        long[] boundaries = new long[chunks + 1];
+        for (int i = 1; i <= chunks; i++) {
+            boundaries[i] = corpus.wordBoundary(Math.max(boundaries[i - 1], corpus.size() * i / chunks));
+        }
+        Counts counts = pool.invoke(new CountTask(corpus, boundaries, 0, chunks));
+        EdgeBatch<String> batch = new EdgeBatch<>();
+        for (Map.Entry<String, Map<String, int[]>> row : counts.pairs.entrySet()) {
+            String source = row.getKey();
+            for (Map.Entry<String, int[]> e : row.getValue().entrySet()) {
+                batch.add(source, e.getKey(), e.getValue()[0]);
+            }
+        }
+        graph.incrementAll(batch);
+    }
+    
+    /** Pair counts of a contiguous run of chunks. Mutable. */
+    static final class Counts {
+        // w1 -> w2 -> { number of times w1 is followed by w2 }
+        private final Map<String, Map<String, int[]>> pairs = new HashMap<>();
+        // first and last word of the run, or null if it has no words
+        private String first;
+        private String last;
+        
+        /**
+         * Count a pair more times.
+         * 
+         * @param source first word of the pair
+         * @param target second word of the pair
+         * @param count number of times to add, nonnegative
+         * @throws ArithmeticException if the pair's count would overflow an int
+         */
+        void add(String source, String target, int count) {
+            int[] n = pairs.computeIfAbsent(source, k -> new HashMap<>())
+                    .computeIfAbsent(target, k -> new int[1]);
+            n[0] = Math.addExact(n[0], count);
+        }
+        
+        /**
+         * Append the counts of the run right after this one.
+         * 
+         * @param next counts of the following run; must not be used after
+         * @return the counts of both runs together
+         * @throws ArithmeticException if a pair's count would overflow an int
+         */
+        Counts append(Counts next) {
+            Counts into = pairs.size() >= next.pairs.size() ? this : next;
+            Counts from = into == this ? next : this;
+            for (Map.Entry<String, Map<String, int[]>> row : from.pairs.entrySet()) {
+                for (Map.Entry<String, int[]> e : row.getValue().entrySet()) {
+                    into.add(row.getKey(), e.getKey(), e.getValue()[0]);
+                }
+            }
+            if (last != null && next.first != null) {
+                into.add(last, next.first, 1);
+            }
+            String newFirst = first != null ? first : next.first;
+            String newLast = next.last != null ? next.last : last;
+            into.first = newFirst;
+            into.last = newLast;
+            return into;
+        }
+    }
+    
+    /** Counts the pairs of chunks [lo, hi), splitting the range in half. */
+    private static final class CountTask extends RecursiveTask<Counts> {
+        private static final long serialVersionUID = 1L;
+        
+        private final MappedCorpus corpus;
+        private final long[] boundaries;
+        private final int lo;
+        private final int hi;
+        
+        CountTask(MappedCorpus corpus, long[] boundaries, int lo, int hi) {
+            this.corpus = corpus;
+            this.boundaries = boundaries;
+            this.lo = lo;
+            this.hi = hi;
+        }
+        
+        @Override
+        protected Counts compute() {
+            if (hi - lo == 1) {
+                return countChunk();
+            }
+            int mid = (lo + hi) >>> 1;
+            CountTask left = new CountTask(corpus, boundaries, lo, mid);
+            left.fork();
+            Counts right = new CountTask(corpus, boundaries, mid, hi).compute();
+            return left.join().append(right);
+        }
+        
+        private Counts countChunk() {
+            Counts counts = new Counts();
+            MappedCorpusTokenizer words = new MappedCorpusTokenizer(corpus, boundaries[lo], boundaries[hi], new Vocabulary());
+            String source = words.next();
+            counts.first = source;
+            counts.last = source;
+            for (String target = words.next(); target != null; source = target, target = words.next()) {
+                counts.add(source, target, 1);
+                counts.last = target;
+            }
+            return counts;
+        }
+    }
+    
+}
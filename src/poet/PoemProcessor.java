@@ -0,0 +1,382 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A stage of a stream pipeline that turns input lines into poems, written by
+ * one GraphPoet.
+ *
+ * <p>Lines received from upstream are grouped into batches and written by
+ * {@link GraphPoet#poems(List)} on an executor, with at most a given number
+ * of batches at once. A batch takes every line that has arrived, up to the
+ * batch size, so lines are batched only when they arrive faster than they
+ * are written. Poems are published in the order of their lines.
+ *
+ * <p>Backpressure: the processor requests no more lines from upstream than
+ * parallelism * batchSize minus the lines it holds, including poems its
+ * subscriber has not requested yet, so a slow subscriber slows the
+ * upstream down instead of filling memory. No method blocks: the work
+ * runs on the executor, and signals are sent from whichever thread makes
+ * progress possible.
+ *
+ * <p>A processor serves one subscriber and one upstream subscription;
+ * several streams can share a poet, and an executor, through a processor
+ * each. Completion is published once every poem has been; an error from
+ * upstream or from writing a poem is published at once, or as soon as a
+ * subscriber has subscribed, dropping the poems not yet published.
+ */
+public final class PoemProcessor implements Flow.Processor<String, String> {
+
+    private final GraphPoet poet;
+    private final Executor executor;
+    private final int parallelism;
+    private final int batchSize;
+
+    private Flow.Subscription upstream = null;
+    private Flow.Subscriber<? super String> downstream = null;
+    // Whether downstream has been sent onSubscribe(), so other signals may follow
+    private boolean attached = false;
+    // Lines received but not yet in a batch
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+    // Batches in order of their lines, until all their poems are published
+    private final ArrayDeque<Batch> batches = new ArrayDeque<>();
+    private int running = 0;
+    private int held = 0;
+    private long requested = 0;
+    private long demand = 0;
+    private boolean upstreamDone = false;
+    private Throwable error = null;
+    private boolean cancelled = false;
+    // Whether the lines and poems held were dropped after an error or cancel
+    private boolean stopped = false;
+    // Whether downstream was sent onComplete() or onError()
+    private boolean terminated = false;
+
+    // Number of calls to drain() not yet served; the call that raises it
+    // from 0 serves them all, so subscribers are signalled by one thread
+    // at a time
+    private final AtomicInteger drains = new AtomicInteger();
+
+    /*	Abstraction function:
+     * 		A processor connected to upstream and downstream, holding the
+     * 		lines pending, and the lines of batches, in order, some of
+     * 		whose poems are written; requested lines are still to come from
+     * 		upstream, and demand poems may still be sent downstream
+     */
+
+    /*	Representation invariant:
+     * 		parallelism, batchSize > 0
+     * 		0 <= running <= parallelism, and running is the number of
+     * 		batches whose poems are not written
+     * 		held is the number of lines pending and of lines in batches
+     * 		whose poems are not published; held + requested <=
+     * 		parallelism * batchSize
+     * 		requested, demand >= 0
+     * 		attached implies downstream != null; terminated implies attached
+     * 		stopped implies pending and batches are empty and held,
+     * 		requested == 0
+     */
+
+    /*	Safety from rep exposure:
+     * 		All fields are private; subscribers only get Subscriptions
+     * 		that call back into this processor
+     */
+
+    /*	Thread safety argument:
+     * 		All mutable fields but drains are only accessed while holding
+     * 		this object's lock. Subscribers and upstream are called without
+     * 		the lock, and only from drain(), which one thread at a time
+     * 		runs, guarded by the atomic drains counter; drain() sends
+     * 		downstream onSubscribe() before any other signal.
+     */
+
+    /** Lines whose poems are written by one task, with the poems once they are. */
+    private static final class Batch {
+        final List<String> lines;
+        List<String> poems = null;
+        int published = 0;
+
+        Batch(List<String> lines) {
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * Create a processor.
+     *
+     * @param poet poet to write poems with
+     * @param executor executor to write the poems on
+     * @param parallelism maximum number of batches written at once,
+     *        positive
+     * @param batchSize maximum number of lines in a batch, positive
+     */
+    public PoemProcessor(GraphPoet poet, Executor executor, int parallelism, int batchSize) {
+        if (parallelism < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("parallelism " + parallelism + ", batch size " + batchSize);
+        }
+        this.poet = Objects.requireNonNull(poet);
+        this.executor = Objects.requireNonNull(executor);
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        checkRep();
+    }
+
+    private synchronized void checkRep() {
+        assert 0 <= running && running <= parallelism;
+        assert held >= 0 && requested >= 0 && demand >= 0;
+        assert held + requested <= (long) parallelism * batchSize;
+        assert !attached || downstream != null;
+        assert !terminated || attached;
+        assert !stopped || (pending.isEmpty() && batches.isEmpty() && held == 0 && requested == 0);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super String> subscriber) {
+        Objects.requireNonNull(subscriber);
+        synchronized (this) {
+            if (downstream == null) {
+                downstream = subscriber;
+                subscriber = null;
+            }
+        }
+        if (subscriber != null) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override public void request(long n) {}
+                @Override public void cancel() {}
+            });
+            subscriber.onError(new IllegalStateException("PoemProcessor has a subscriber already"));
+            return;
+        }
+        drain();
+    }
+
+    /** @return the subscription of downstream */
+    private Flow.Subscription downstreamSubscription() {
+        return new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                synchronized (PoemProcessor.this) {
+                    if (n <= 0) {
+                        fail(new IllegalArgumentException("nonpositive request " + n));
+                    } else {
+                        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                    }
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                synchronized (PoemProcessor.this) {
+                    cancelled = true;
+                }
+                drain();
+            }
+        };
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription);
+        boolean accepted;
+        synchronized (this) {
+            accepted = upstream == null;
+            if (accepted) {
+                upstream = subscription;
+            }
+        }
+        if (!accepted) {
+            subscription.cancel();
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onNext(String line) {
+        Objects.requireNonNull(line);
+        synchronized (this) {
+            if (stopped || cancelled || error != null) {
+                // upstream may still send lines requested before the stop
+                return;
+            }
+            if (requested == 0) {
+                fail(new IllegalStateException("line received that was not requested"));
+            } else {
+                requested--;
+                held++;
+                pending.add(line);
+            }
+        }
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        Objects.requireNonNull(throwable);
+        synchronized (this) {
+            upstreamDone = true;
+            fail(throwable);
+        }
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (this) {
+            upstreamDone = true;
+        }
+        drain();
+    }
+
+    /** Record the first error, to be published by drain(). Requires the lock. */
+    private void fail(Throwable throwable) {
+        if (error == null) {
+            error = throwable;
+        }
+    }
+
+    /**
+     * Make all the progress possible: attach the subscriber, publish written
+     * poems it has asked for, start batches, request lines from upstream,
+     * and finish. An error or cancel drops everything held at once, but the
+     * error waits for a subscriber to be attached.
+     */
+    private void drain() {
+        if (drains.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            Flow.Subscriber<? super String> attach = null;
+            synchronized (this) {
+                if (downstream != null && !attached) {
+                    attached = true;
+                    attach = downstream;
+                }
+            }
+            if (attach != null) {
+                attach.onSubscribe(downstreamSubscription());
+                // serve this call again, now that the subscriber may follow
+                drains.incrementAndGet();
+                continue;
+            }
+            List<String> poems = new ArrayList<>();
+            List<Batch> started = new ArrayList<>();
+            long request = 0;
+            boolean cancelUpstream = false;
+            Throwable failure = null;
+            boolean complete = false;
+            Flow.Subscriber<? super String> subscriber;
+            Flow.Subscription subscription;
+            synchronized (this) {
+                subscriber = attached ? downstream : null;
+                subscription = upstream;
+                if (!stopped && (cancelled || error != null)) {
+                    stopped = true;
+                    cancelUpstream = !upstreamDone;
+                    pending.clear();
+                    batches.clear();
+                    held = 0;
+                    requested = 0;
+                }
+                if (stopped) {
+                    if (!terminated && !cancelled && subscriber != null) {
+                        terminated = true;
+                        failure = error;
+                    }
+                } else if (!terminated) {
+                    publishable(subscriber, poems);
+                    while (running < parallelism && !pending.isEmpty()) {
+                        List<String> lines = new ArrayList<>(Math.min(batchSize, pending.size()));
+                        while (lines.size() < batchSize && !pending.isEmpty()) {
+                            lines.add(pending.poll());
+                        }
+                        Batch batch = new Batch(lines);
+                        batches.add(batch);
+                        started.add(batch);
+                        running++;
+                    }
+                    if (subscription != null && !upstreamDone) {
+                        request = (long) parallelism * batchSize - held - requested;
+                        requested += request;
+                    }
+                    if (upstreamDone && held == 0 && subscriber != null) {
+                        terminated = true;
+                        complete = true;
+                    }
+                }
+                checkRep();
+            }
+            for (String poem : poems) {
+                subscriber.onNext(poem);
+            }
+            for (Batch batch : started) {
+                start(batch);
+            }
+            if (request > 0) {
+                subscription.request(request);
+            }
+            if (cancelUpstream && subscription != null) {
+                subscription.cancel();
+            }
+            if (failure != null) {
+                subscriber.onError(failure);
+            } else if (complete) {
+                subscriber.onComplete();
+            }
+        } while (drains.decrementAndGet() != 0);
+    }
+
+    /**
+     * Take the poems that can be published now out of the written batches.
+     * Requires the lock.
+     *
+     * @param subscriber the subscriber, or null if there is none yet
+     * @param poems list to add the poems to, in order
+     */
+    private void publishable(Flow.Subscriber<? super String> subscriber, List<String> poems) {
+        while (subscriber != null && demand > 0 && !batches.isEmpty() && batches.peek().poems != null) {
+            Batch batch = batches.peek();
+            poems.add(batch.poems.get(batch.published++));
+            demand--;
+            held--;
+            if (batch.published == batch.poems.size()) {
+                batches.poll();
+            }
+        }
+    }
+
+    /** Write the poems of a batch on the executor, then drain(). */
+    private void start(Batch batch) {
+        CompletableFuture<List<String>> poems;
+        try {
+            poems = CompletableFuture.supplyAsync(() -> poet.poems(batch.lines), executor);
+        } catch (RuntimeException e) {
+            poems = new CompletableFuture<>();
+            poems.completeExceptionally(e);
+        }
+        poems.whenComplete((written, failure) -> {
+            synchronized (this) {
+                running--;
+                if (failure != null) {
+                    fail(failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause() : failure);
+                } else {
+                    batch.poems = written;
+                }
+            }
+            drain();
+        });
+    }
+
+}
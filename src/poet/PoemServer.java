@@ -0,0 +1,301 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An HTTP server writing poems with one or more GraphPoets, each serving
+ * the corpus it was built from under a name.
+ *
+ * <p>Requests:
+ * <ul>
+ * <li>POST /poem/NAME with the input as a UTF-8 body: the poem written by
+ *     the poet named NAME, streamed back as it is written
+ * <li>GET /stats: for each poet, the number of poems written and their
+ *     latency percentiles
+ * <li>GET /stats/NAME: the latency histogram of the poet named NAME, one
+ *     bucket per line as written by {@link LatencyHistogram#writeBuckets}
+ * </ul>
+ * A poem's latency is measured from the start of handling its request to
+ * the last of its response being sent.
+ *
+ * <p>Each request is handled by a thread of a fixed pool, which it holds
+ * until its response is written. Connections are kept alive between
+ * requests. They use TCP_NODELAY if the JVM-wide system property
+ * sun.net.httpserver.nodelay is true when the first server is created;
+ * {@link #main(String[])} sets it, and other callers decide for themselves.
+ *
+ * <p>Run with: java poet.PoemServer [-port PORT] [-threads THREADS]
+ * [NAME=]CORPUS...
+ * <p>A corpus is named after its file, without extension, unless a name
+ * is given.
+ */
+public final class PoemServer {
+
+    private static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 1024;
+    private static final int BUFFER_CHARS = 8192;
+    private static final String POEM = "/poem/";
+    private static final String STATS = "/stats";
+    // Read by the JDK server once, when the first server is created
+    static final String NODELAY = "sun.net.httpserver.nodelay";
+
+    private final Map<String, GraphPoet> poets;
+    private final Map<String, LatencyHistogram> latencies;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /*	Abstraction function:
+     * 		A server listening on server's address, serving poems from
+     * 		poets by name, the latencies of each poet's poems so far being
+     * 		recorded in latencies under the same name
+     */
+
+    /*	Representation invariant:
+     * 		poets and latencies have the same keys
+     */
+
+    /*	Safety from rep exposure:
+     * 		poets and latencies are unmodifiable private copies; the
+     * 		histograms returned are meant to be shared, and only ever
+     * 		grow
+     */
+
+    /*	Thread safety argument:
+     * 		The maps are never modified after construction; GraphPoet
+     * 		and LatencyHistogram are threadsafe, and HttpServer hands
+     * 		each exchange to one thread
+     */
+
+    /**
+     * Create a server, which does not accept connections until started.
+     *
+     * @param poets poets to serve, by name; names must not contain '/'
+     * @param address address to listen on; port 0 picks a free port
+     * @param threads number of threads handling requests, positive
+     * @throws IOException if the address cannot be bound
+     */
+    public PoemServer(Map<String, GraphPoet> poets, InetSocketAddress address, int threads) throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads " + threads);
+        }
+        Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        for (String name : poets.keySet()) {
+            if (name.isEmpty() || name.indexOf('/') >= 0) {
+                throw new IllegalArgumentException("bad corpus name '" + name + "'");
+            }
+            latencies.put(name, new LatencyHistogram());
+        }
+        this.poets = Collections.unmodifiableMap(new LinkedHashMap<>(poets));
+        this.latencies = Collections.unmodifiableMap(latencies);
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+            @Override public Thread newThread(Runnable task) {
+                return new Thread(task, "poem-server-" + count.incrementAndGet());
+            }
+        });
+        this.server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+        server.createContext(POEM, this::handlePoem);
+        server.createContext(STATS, this::handleStats);
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert poets.keySet().equals(latencies.keySet());
+    }
+
+    /** Start accepting connections. */
+    public void start() {
+        server.start();
+    }
+
+    /** Stop accepting connections, and stop once the requests being handled are. */
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /** @return address the server listens on */
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    /**
+     * @param name name of a poet
+     * @return the live histogram of the latencies of its poems, or null if
+     *         no poet has that name
+     */
+    public LatencyHistogram latency(String name) {
+        return latencies.get(name);
+    }
+
+    private void handlePoem(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            String name = exchange.getRequestURI().getPath().substring(POEM.length());
+            GraphPoet poet = poets.get(name);
+            if (poet == null) {
+                respond(exchange, 404, "no corpus named '" + name + "'\n");
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, "POST the input to " + POEM + name + "\n");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (Reader in = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8);
+                    Writer out = new BufferedWriter(
+                            new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8),
+                            BUFFER_CHARS)) {
+                poet.poem(in, out);
+                out.flush();
+                // before close() ends the response, so a client that has it sees the count
+                latencies.get(name).record(System.nanoTime() - start);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                respond(exchange, 405, "GET " + STATS + "\n");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            StringBuilder body = new StringBuilder();
+            if (path.equals(STATS) || path.equals(STATS + "/")) {
+                for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+                    body.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+                }
+            } else {
+                LatencyHistogram histogram = path.startsWith(STATS + "/")
+                        ? latencies.get(path.substring(STATS.length() + 1)) : null;
+                if (histogram == null) {
+                    respond(exchange, 404, "no statistics at " + path + "\n");
+                    return;
+                }
+                histogram.writeBuckets(body);
+            }
+            respond(exchange, 200, body.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Load the corpora named on the command line and serve them until the
+     * process is killed.
+     *
+     * <p>Turns on TCP_NODELAY for the JDK HTTP server of this JVM, unless
+     * the system property sun.net.httpserver.nodelay is set already: without
+     * it, the body of a streamed response waits for the client to
+     * acknowledge the headers, which clients delay by up to 40 ms.
+     *
+     * @param args [-port PORT] [-threads THREADS] [NAME=]CORPUS...
+     * @throws IOException if a corpus cannot be read or the port bound
+     */
+    public static void main(String[] args) throws IOException {
+        if (System.getProperty(NODELAY) == null) {
+            System.setProperty(NODELAY, "true");
+        }
+        int port = DEFAULT_PORT;
+        int threads = 4 * Runtime.getRuntime().availableProcessors();
+        List<String> corpora = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-port") && i + 1 < args.length) {
+                port = intOption(args[++i], 0, 0xFFFF);
+            } else if (args[i].equals("-threads") && i + 1 < args.length) {
+                threads = intOption(args[++i], 1, Integer.MAX_VALUE);
+            } else if (args[i].startsWith("-")) {
+                // an unknown option, or one missing its value
+                usage();
+            } else {
+                corpora.add(args[i]);
+            }
+        }
+        if (corpora.isEmpty()) {
+            usage();
+        }
+        Map<String, GraphPoet> poets = new LinkedHashMap<>();
+        for (String arg : corpora) {
+            int equals = arg.indexOf('=');
+            File corpus = new File(arg.substring(equals + 1));
+            String name = equals >= 0 ? arg.substring(0, equals) : corpus.getName().replaceFirst("\\.[^.]*$", "");
+            long start = System.nanoTime();
+            poets.put(name, new GraphPoet(corpus));
+            System.out.printf("loaded %s from %s in %.1f ms%n", name, corpus, (System.nanoTime() - start) / 1e6);
+        }
+        PoemServer server = new PoemServer(poets, new InetSocketAddress(port), threads);
+        server.start();
+        System.out.println("serving " + poets.keySet() + " on port " + server.address().getPort());
+    }
+
+    /**
+     * Parse the value of a numeric option of main(), calling usage() if it
+     * is not a number in range.
+     *
+     * @param value value given on the command line
+     * @param min least allowed value
+     * @param max greatest allowed value, at least min
+     * @return value as an int in [min, max]
+     */
+    private static int intOption(String value, int min, int max) {
+        try {
+            int n = Integer.parseInt(value);
+            if (n >= min && n <= max) {
+                return n;
+            }
+        } catch (NumberFormatException e) {
+            // not a number; fall through to usage()
+        }
+        usage();
+        throw new AssertionError("usage() returned");
+    }
+
+    /** Print the command line of main() and exit with status 2. */
+    private static void usage() {
+        System.err.println("usage: java poet.PoemServer [-port PORT] [-threads THREADS] [NAME=]CORPUS...");
+        System.exit(2);
+    }
+
+}
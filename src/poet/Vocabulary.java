@@ -0,0 +1,105 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A set of distinct words that can be looked up by their ASCII bytes, so a
+ * tokenizer only has to create a String the first time it sees a word.
+ * Mutable, and not safe for use by several threads at once.
+ */
+final class Vocabulary {
+    
+    private String[] words = new String[1024];
+    private int size = 0;
+    
+    /*	Abstraction function:
+     * 		The set of non-null elements of words
+     */
+    
+    /*	Representation invariant:
+     * 		words.length is a power of two and size, the number of non-null
+     * 		elements, is at most half of it
+     * 		every word is ASCII, distinct, and reachable by linear probing
+     * 		from its home slot without crossing a null
+     */
+    
+    /*	Safety from rep exposure:
+     * 		words is private and never returned; Strings are immutable
+     */
+    
+    /**
+     * Compute the hash of a word from its bytes, as intern() expects it.
+     * Equal to String.hashCode() of the word.
+     * 
+     * @param hash hash of the bytes so far (0 for none)
+     * @param b next byte of the word, ASCII
+     * @return hash of the bytes including b
+     */
+    static int hash(int hash, byte b) {
+        return 31 * hash + b;
+    }
+    
+    /**
+     * Find a word, adding it if it is new.
+     * 
+     * @param bytes ASCII bytes of the word are bytes[0..length)
+     * @param length length of the word, positive
+     * @param hash hash of the word's bytes, computed with hash()
+     * @return the String in this vocabulary equal to the word
+     */
+    String intern(byte[] bytes, int length, int hash) {
+        int mask = words.length - 1;
+        int i = spread(hash) & mask;
+        for (String word = words[i]; word != null; i = (i + 1) & mask, word = words[i]) {
+            if (word.hashCode() == hash && matches(word, bytes, length)) {
+                return word;
+            }
+        }
+        String word = new String(bytes, 0, length, StandardCharsets.US_ASCII);
+        words[i] = word;
+        if (++size > words.length / 2) {
+            grow();
+        }
+        return word;
+    }
+    
+    /** @return number of distinct words */
+    int size() {
+        return size;
+    }
+    
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+    
+    private static boolean matches(String word, byte[] bytes, int length) {
+        if (word.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void grow() {
+        String[] old = words;
+        words = new String[old.length * 2];
+        int mask = words.length - 1;
+        for (String word : old) {
+            if (word != null) {
+                int i = spread(word.hashCode()) & mask;
+                while (words[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                words[i] = word;
+            }
+        }
+    }
+    
+}
@@ -0,0 +1,25 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import java.io.IOException;
+
+/**
+ * A sequence of corpus words, read one at a time.
+ * 
+ * <p>Words are maximal runs of the characters {@code [\w']}, converted to
+ * lower case.
+ */
+interface WordSource {
+    
+    /**
+     * Read the next word.
+     * 
+     * @return the next word, in lower case, or null if there are no more
+     *         words
+     * @throws IOException if the underlying text cannot be read
+     */
+    String next() throws IOException;
+    
+}
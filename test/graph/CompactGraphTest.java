@@ -0,0 +1,128 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for CompactGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against CompactGraph, as well as
+ * tests for that particular implementation.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class CompactGraphTest extends GraphInstanceTest {
+
+	/*
+	 * Provide a CompactGraph for tests in GraphInstanceTest.
+	 */
+	@Override
+	public Graph<String> emptyInstance() {
+		return new CompactGraph<>();
+	}
+
+	/*
+	 * Testing CompactGraph...
+	 * 
+	 * Partitions: self loops, removed vertex ids reused, vertex degree large
+	 * enough to grow its neighbour arrays and the weight table, non-String
+	 * labels, ids private or from a symbol table shared with another graph
+	 */
+
+	@Test
+	public void testSelfLoopRemoved() {
+		Graph<String> g = emptyInstance();
+		g.set("A", "A", 2);
+		g.set("A", "B", 3);
+		g.set("B", "A", 4);
+
+		assertEquals("expected self loop as target", (Integer) 2, g.targets("A").get("A"));
+		assertEquals("expected self loop as source", (Integer) 2, g.sources("A").get("A"));
+		assertTrue("expected A removed", g.remove("A"));
+		assertTrue("expected no targets at B", g.targets("B").isEmpty());
+		assertTrue("expected no sources at B", g.sources("B").isEmpty());
+	}
+
+	@Test
+	public void testRemovedVertexIdReused() {
+		Graph<String> g = emptyInstance();
+		g.set("A", "B", 1);
+		g.remove("A");
+		g.set("C", "B", 5);
+
+		assertEquals("expected only C as source of B", Collections.singletonMap("C", 5), g.sources("B"));
+		assertTrue("expected no targets at A", g.targets("A").isEmpty());
+		assertFalse("expected A gone", g.vertices().contains("A"));
+	}
+
+	@Test
+	public void testHighDegreeGrowsAndShrinks() {
+		Graph<String> g = emptyInstance();
+		Map<String, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			g.set("hub", "v" + i, i + 1);
+			expected.put("v" + i, i + 1);
+		}
+		assertEquals("expected all targets of hub", expected, g.targets("hub"));
+
+		for (int i = 0; i < 1000; i += 2) {
+			assertEquals("expected previous weight", i + 1, g.set("hub", "v" + i, 0));
+			expected.remove("v" + i);
+		}
+		assertEquals("expected odd targets of hub", expected, g.targets("hub"));
+		assertEquals("expected hub as source", Collections.singletonMap("hub", 2), g.sources("v1"));
+		assertTrue("expected no sources of removed edge", g.sources("v0").isEmpty());
+	}
+
+	@Test
+	public void testIntegerLabels() {
+		Graph<Integer> g = new CompactGraph<>();
+		g.set(1, 2, 7);
+
+		assertEquals("expected edge 1->2", Collections.singletonMap(2, 7), g.targets(1));
+		assertEquals("expected previous weight", 7, g.set(1, 2, 8));
+	}
+
+	@Test
+	public void testSharedSymbolTable() {
+		SymbolTable<String> symbols = new SymbolTable<>();
+		symbols.intern("X");
+		CompactGraph<String> g1 = new CompactGraph<>(symbols);
+		CompactGraph<String> g2 = new CompactGraph<>(symbols);
+		String a = new String("A");
+		g1.set(a, "B", 1);
+		g2.set("B", new String("A"), 2);
+		g2.set("C", "B", 3);
+
+		assertEquals("expected one id per label", 4, symbols.size());
+		assertEquals("expected edge in first graph", Collections.singletonMap("B", 1), g1.targets("A"));
+		assertEquals("expected edge in second graph", Collections.singletonMap("A", 2), g2.targets("B"));
+		assertSame("expected table instance as label", a, g2.vertices().stream().filter("A"::equals).findAny().get());
+		assertEquals("expected one duplicate", 1, symbols.duplicates());
+	}
+
+	@Test
+	public void testSharedSymbolTableRemove() {
+		SymbolTable<String> symbols = new SymbolTable<>();
+		CompactGraph<String> g = new CompactGraph<>(symbols);
+		g.set("A", "B", 1);
+		g.remove("A");
+		g.set("C", "B", 5);
+		g.set("A", "C", 2);
+
+		assertEquals("expected removed label kept in table", 0, symbols.id("A"));
+		assertEquals("expected new id for new label", 2, symbols.id("C"));
+		assertEquals("expected edge to B", Collections.singletonMap("B", 5), g.targets("C"));
+		assertEquals("expected readded edge", Collections.singletonMap("C", 2), g.targets("A"));
+		assertEquals("expected vertices", 3, g.vertices().size());
+	}
+
+}
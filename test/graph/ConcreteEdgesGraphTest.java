@@ -5,6 +5,8 @@ package graph;
 
 import static org.junit.Assert.*;
 
+import java.util.Collections;
+
 import org.junit.Test;
 
 /**
@@ -59,6 +61,59 @@ public class ConcreteEdgesGraphTest extends GraphInstanceTest {
 		assertTrue(ceg.toString().equals(graphStr));
 	}
 
+	// Testing strategy for the edge indexes
+	// Partitions:
+	// 1) Edge removed by set(..., 0), remaining edges keep their order
+	// 2) Vertex removed, all its incoming and outgoing edges disappear
+	// 3) Most edges removed, forcing the edge list to be compacted
+
+	@Test
+	public void testRemoveEdgeKeepsOrder() {
+		ConcreteEdgesGraph ceg = new ConcreteEdgesGraph();
+		ceg.set("A", "B", 10);
+		ceg.set("B", "C", 5);
+		ceg.set("C", "B", 15);
+		ceg.set("B", "C", 0);
+		ceg.set("A", "B", 20);
+
+		String graphStr = "From: A  To: B  Weight: 20" + " --- " + "From: C  To: B  Weight: 15" + " --- ";
+		assertEquals(graphStr, ceg.toString());
+	}
+
+	@Test
+	public void testRemoveVertexRemovesAllItsEdges() {
+		ConcreteEdgesGraph ceg = new ConcreteEdgesGraph();
+		ceg.set("A", "B", 1);
+		ceg.set("B", "A", 2);
+		ceg.set("B", "B", 3);
+		ceg.set("C", "B", 4);
+		ceg.set("A", "C", 5);
+
+		assertTrue(ceg.remove("B"));
+		assertTrue(ceg.targets("A").equals(Collections.singletonMap("C", 5)));
+		assertTrue(ceg.sources("A").isEmpty());
+		assertTrue(ceg.targets("C").isEmpty());
+		assertTrue(ceg.sources("B").isEmpty());
+		assertEquals("From: A  To: C  Weight: 5" + " --- ", ceg.toString());
+	}
+
+	@Test
+	public void testManyRemovalsCompactEdges() {
+		ConcreteEdgesGraph ceg = new ConcreteEdgesGraph();
+		for (int i = 0; i < 100; i++) {
+			ceg.set("A", "V" + i, i + 1);
+		}
+		for (int i = 0; i < 99; i++) {
+			assertEquals(i + 1, ceg.set("A", "V" + i, 0));
+		}
+
+		assertEquals(Collections.singletonMap("V99", 100), ceg.targets("A"));
+		assertEquals(Collections.singletonMap("A", 100), ceg.sources("V99"));
+		assertEquals(0, ceg.set("B", "V0", 1));
+		assertEquals("From: A  To: V99  Weight: 100" + " --- " + "From: B  To: V0  Weight: 1" + " --- ",
+				ceg.toString());
+	}
+
 	/*
 	 * Testing Edge...
 	 */
@@ -5,6 +5,7 @@ package graph;
 
 import static org.junit.Assert.*;
 
+import java.util.Collections;
 import java.util.Map;
 
 import org.junit.Test;
@@ -115,6 +116,48 @@ public class ConcreteVerticesGraphTest extends GraphInstanceTest {
 		assertEquals("expected only one entry in a.targets", 1, outwardEdges.size());
 	}
 
+	/*
+	 * getInwardEdges: - no incoming edges - edge added, updated and removed
+	 * through the source's setEdgeTo
+	 */
+	@Test
+	public void testInwardEdgesEmpty() {
+		Vertex a = new Vertex("A");
+
+		assertTrue("expected no sources at A", a.getInwardEdges().isEmpty());
+	}
+
+	@Test
+	public void testInwardEdgesFollowSetEdgeTo() {
+		Vertex a = new Vertex("A");
+		Vertex b = new Vertex("B");
+
+		a.setEdgeTo(b, 1);
+		assertEquals("expected B to have A as a source", Collections.singletonMap(a, 1), b.getInwardEdges());
+		a.setEdgeTo(b, 3);
+		assertEquals("expected B to see the new weight", Collections.singletonMap(a, 3), b.getInwardEdges());
+		a.setEdgeTo(b, 0);
+		assertTrue("expected no sources at B", b.getInwardEdges().isEmpty());
+		assertTrue("expected no sources at A", a.getInwardEdges().isEmpty());
+	}
+
+	/*
+	 * Testing remove() with the reverse edges: removed vertex had edges in
+	 * both directions
+	 */
+	@Test
+	public void testRemoveVertexWithEdgesBothWays() {
+		Graph<String> g = emptyInstance();
+		g.set("A", "B", 1);
+		g.set("B", "C", 2);
+		g.set("C", "A", 3);
+
+		assertTrue("expected B removed", g.remove("B"));
+		assertTrue("expected no targets at A", g.targets("A").isEmpty());
+		assertTrue("expected no sources at C", g.sources("C").isEmpty());
+		assertEquals("expected C->A to remain", Collections.singletonMap("C", 3), g.sources("A"));
+	}
+
 	/*
 	 * Tests for Vertex.toString() partitions: name, 0 edges
 	 * "graph.Vertex@{'$name'}" name, 1 edge
@@ -0,0 +1,228 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.Test;
+
+/**
+ * Tests for ConcurrentGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against ConcurrentGraph, as well
+ * as tests for that particular implementation.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class ConcurrentGraphTest extends GraphInstanceTest {
+
+	private static final int THREADS = 4;
+	private static final int OPERATIONS = 20000;
+
+	/*
+	 * Provide a ConcurrentGraph for tests in GraphInstanceTest.
+	 */
+	@Override
+	public Graph<String> emptyInstance() {
+		return new ConcurrentGraph<>();
+	}
+
+	/*
+	 * Testing ConcurrentGraph...
+	 * 
+	 * Partitions: one stripe or many, self loops, single writer thread or
+	 * several writers, single increments or batches, writers racing with
+	 * readers, lock-free increments racing with snapshots, writers racing
+	 * with remove
+	 */
+
+	@Test
+	public void testSingleStripe() {
+		Graph<String> g = new ConcurrentGraph<>(1);
+		g.set("A", "B", 1);
+		g.set("B", "A", 2);
+		g.set("A", "A", 3);
+
+		assertEquals("expected weight", 1, g.weight("A", "B"));
+		assertEquals("expected self loop", 3, g.weight("A", "A"));
+		assertTrue("expected A removed", g.remove("A"));
+		assertTrue("expected no targets at B", g.targets("B").isEmpty());
+		assertTrue("expected no sources at B", g.sources("B").isEmpty());
+	}
+
+	@Test
+	public void testConcurrentIncrementsMatchSequential() throws InterruptedException {
+		Graph<String> shared = new ConcurrentGraph<>(4);
+		Graph<String> expected = new ConcreteEdgesGraph();
+		List<Thread> threads = new ArrayList<>();
+		ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+		for (int n = 0; n < THREADS; n++) {
+			final long seed = n;
+			// positive increments commute, so any interleaving gives the same
+			// graph as applying every thread's operations in turn
+			Random replay = new Random(seed);
+			for (int i = 0; i < OPERATIONS; i++) {
+				expected.increment(label(replay), label(replay), 1 + replay.nextInt(3));
+			}
+			threads.add(new Thread(() -> {
+				Random random = new Random(seed);
+				try {
+					for (int i = 0; i < OPERATIONS; i++) {
+						shared.increment(label(random), label(random), 1 + random.nextInt(3));
+					}
+				} catch (Throwable t) {
+					failures.add(t);
+				}
+			}));
+		}
+		runAll(threads);
+
+		assertTrue("expected no failures " + failures, failures.isEmpty());
+		assertEquals("expected same vertices", expected.vertices(), shared.vertices());
+		for (String v : expected.vertices()) {
+			assertEquals("expected same targets of " + v, expected.targets(v), shared.targets(v));
+			assertEquals("expected same sources of " + v, expected.sources(v), shared.sources(v));
+		}
+	}
+
+	@Test
+	public void testSnapshotsConsistentUnderWriters() throws InterruptedException {
+		Graph<String> g = new ConcurrentGraph<>(4);
+		List<Thread> threads = new ArrayList<>();
+		ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+		for (int n = 0; n < THREADS; n++) {
+			final long seed = n;
+			threads.add(new Thread(() -> {
+				Random random = new Random(seed);
+				try {
+					for (int i = 0; i < OPERATIONS; i++) {
+						int op = random.nextInt(10);
+						if (op < 6) {
+							g.set(label(random), label(random), random.nextInt(4));
+						} else if (op < 7) {
+							g.remove(label(random));
+						} else if (op < 8) {
+							g.add(label(random));
+						} else {
+							// every edge in a snapshot must be positive
+							String v = label(random);
+							for (Map.Entry<String, Integer> e : g.targets(v).entrySet()) {
+								assertTrue("expected positive weight", e.getValue() > 0);
+							}
+							for (Map.Entry<String, Integer> e : g.sources(v).entrySet()) {
+								assertTrue("expected positive weight", e.getValue() > 0);
+							}
+						}
+					}
+				} catch (Throwable t) {
+					failures.add(t);
+				}
+			}));
+		}
+		runAll(threads);
+
+		assertTrue("expected no failures " + failures, failures.isEmpty());
+		// once quiet, every edge is seen the same way from both endpoints
+		for (String s : g.vertices()) {
+			for (Map.Entry<String, Integer> e : g.targets(s).entrySet()) {
+				assertTrue("expected target to be a vertex", g.vertices().contains(e.getKey()));
+				assertEquals("expected matching source entry", e.getValue(), g.sources(e.getKey()).get(s));
+			}
+			for (Map.Entry<String, Integer> e : g.sources(s).entrySet()) {
+				assertTrue("expected source to be a vertex", g.vertices().contains(e.getKey()));
+				assertEquals("expected matching target entry", e.getValue(), g.targets(e.getKey()).get(s));
+			}
+		}
+	}
+
+	@Test
+	public void testSnapshotWeightsOfOneInstant() throws InterruptedException {
+		Graph<String> g = new ConcurrentGraph<>(4);
+		g.set("x", "a", 1);
+		g.set("x", "b", 1);
+		g.set("a", "y", 1);
+		g.set("b", "y", 1);
+		// the writer raises a before b, so at every instant a == b or a == b + 1
+		Thread writer = new Thread(() -> {
+			for (int i = 0; i < OPERATIONS * 10; i++) {
+				g.increment("x", "a", 1);
+				g.increment("a", "y", 1);
+				g.increment("x", "b", 1);
+				g.increment("b", "y", 1);
+			}
+		});
+		writer.start();
+		try {
+			while (writer.isAlive()) {
+				Map<String, Integer> targets = g.targets("x");
+				int difference = targets.get("a") - targets.get("b");
+				assertTrue("expected targets of one instant, got " + targets, difference == 0 || difference == 1);
+				Map<String, Integer> sources = g.sources("y");
+				difference = sources.get("a") - sources.get("b");
+				assertTrue("expected sources of one instant, got " + sources, difference == 0 || difference == 1);
+			}
+		} finally {
+			writer.join();
+		}
+		assertEquals(OPERATIONS * 10 + 1, g.weight("x", "b"));
+	}
+
+	@Test
+	public void testConcurrentBatchesMatchSequential() throws InterruptedException {
+		Graph<String> shared = new ConcurrentGraph<>(4);
+		Graph<String> expected = new ConcreteEdgesGraph();
+		List<Thread> threads = new ArrayList<>();
+		ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+		for (int n = 0; n < THREADS; n++) {
+			final long seed = n;
+			Random replay = new Random(seed);
+			for (int i = 0; i < OPERATIONS; i++) {
+				expected.increment(label(replay), label(replay), 1 + replay.nextInt(3));
+			}
+			threads.add(new Thread(() -> {
+				Random random = new Random(seed);
+				EdgeBatch<String> batch = new EdgeBatch<>();
+				try {
+					for (int i = 0; i < OPERATIONS; i++) {
+						batch.add(label(random), label(random), 1 + random.nextInt(3));
+						if (batch.size() == 100) {
+							shared.incrementAll(batch);
+							batch.clear();
+						}
+					}
+					shared.incrementAll(batch);
+				} catch (Throwable t) {
+					failures.add(t);
+				}
+			}));
+		}
+		runAll(threads);
+		assertTrue("expected no failures " + failures, failures.isEmpty());
+		assertEquals("expected same vertices", expected.vertices(), shared.vertices());
+		for (String v : expected.vertices()) {
+			assertEquals("expected same targets of " + v, expected.targets(v), shared.targets(v));
+			assertEquals("expected same sources of " + v, expected.sources(v), shared.sources(v));
+		}
+	}
+
+	private static String label(Random random) {
+		return "v" + random.nextInt(40);
+	}
+
+	private static void runAll(List<Thread> threads) throws InterruptedException {
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+	}
+
+}
@@ -0,0 +1,76 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for DirectIntArray.
+ */
+public class DirectIntArrayTest {
+
+	/*
+	 * Partitions: one buffer or several segments, grown within one buffer,
+	 * from one buffer to segments, from segments to more segments; indexes
+	 * first, last, and on either side of a segment boundary
+	 */
+
+	private static final long SEGMENT = 1 << 24;
+
+	@Test(expected = AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	@Test
+	public void newIntsZero() {
+		DirectIntArray array = new DirectIntArray(10);
+		assertEquals(10, array.length());
+		assertEquals(40, array.bytes());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(0, array.get(i));
+		}
+	}
+
+	@Test
+	public void grownWithinOneBuffer() {
+		DirectIntArray array = new DirectIntArray(4);
+		for (int i = 0; i < 4; i++) {
+			array.set(i, i + 1);
+		}
+		array.grow(2);
+		assertEquals("expected no shrinking", 4, array.length());
+		array.grow(100);
+		assertEquals(100, array.length());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(i + 1, array.get(i));
+		}
+		assertEquals(0, array.get(99));
+	}
+
+	@Test
+	public void grownIntoSegments() {
+		DirectIntArray array = new DirectIntArray(16);
+		array.set(0, 7);
+		array.set(15, 8);
+		array.grow(SEGMENT + 1);
+		assertEquals(2 * SEGMENT, array.length());
+		assertEquals(7, array.get(0));
+		assertEquals(8, array.get(15));
+		array.set(SEGMENT - 1, 9);
+		array.set(SEGMENT, 10);
+		assertEquals(9, array.get(SEGMENT - 1));
+		assertEquals(10, array.get(SEGMENT));
+		assertEquals(0, array.get(2 * SEGMENT - 1));
+
+		array.grow(2 * SEGMENT + 1);
+		assertEquals(3 * SEGMENT, array.length());
+		assertEquals(10, array.get(SEGMENT));
+		array.set(3 * SEGMENT - 1, 11);
+		assertEquals(11, array.get(3 * SEGMENT - 1));
+	}
+
+}
@@ -0,0 +1,172 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests for FrozenGraph.
+ * 
+ * FrozenGraph is immutable, so it can't run the GraphInstanceTest tests;
+ * graphs are built with ConcreteEdgesGraph and then frozen.
+ */
+public class FrozenGraphTest {
+
+	/*
+	 * Testing strategy
+	 * 
+	 * Partition freeze(graph): graph empty, graph with vertices but no
+	 * edges, graph with edges (including self loops); graph already frozen
+	 * 
+	 * Partition sources/targets/weight: vertex not in graph, no edges,
+	 * > 0 edges
+	 * 
+	 * Partition mutators: add, set, remove all throw
+	 * 
+	 * Also covers: snapshot unaffected by later changes to the original
+	 * graph, concurrent readers
+	 */
+
+	@Test(expected = AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	private static Graph<String> sample() {
+		Graph<String> g = new ConcreteEdgesGraph();
+		g.set("A", "B", 1);
+		g.set("A", "C", 2);
+		g.set("B", "C", 3);
+		g.set("C", "C", 4);
+		g.add("D");
+		return g;
+	}
+
+	@Test
+	public void testFreezeEmpty() {
+		FrozenGraph<String> f = FrozenGraph.freeze(new ConcreteEdgesGraph());
+
+		assertTrue("expected no vertices", f.vertices().isEmpty());
+		assertTrue("expected no targets", f.targets("A").isEmpty());
+		assertTrue("expected no sources", f.sources("A").isEmpty());
+		assertEquals("expected no edge", 0, f.weight("A", "B"));
+	}
+
+	@Test
+	public void testFreezeMatchesOriginal() {
+		Graph<String> g = sample();
+		FrozenGraph<String> f = FrozenGraph.freeze(g);
+
+		assertEquals("expected same vertices", g.vertices(), f.vertices());
+		for (String v : g.vertices()) {
+			assertEquals("expected same targets of " + v, g.targets(v), f.targets(v));
+			assertEquals("expected same sources of " + v, g.sources(v), f.sources(v));
+		}
+	}
+
+	@Test
+	public void testWeight() {
+		FrozenGraph<String> f = FrozenGraph.freeze(sample());
+
+		assertEquals("expected A->C", 2, f.weight("A", "C"));
+		assertEquals("expected self loop", 4, f.weight("C", "C"));
+		assertEquals("expected no C->A", 0, f.weight("C", "A"));
+		assertEquals("expected no edge from isolated vertex", 0, f.weight("D", "A"));
+		assertEquals("expected no edge from unknown vertex", 0, f.weight("E", "A"));
+	}
+
+	@Test
+	public void testForEachMatchesMaps() {
+		Graph<String> g = sample();
+		FrozenGraph<String> f = FrozenGraph.freeze(g);
+
+		for (String v : g.vertices()) {
+			Map<String, Integer> targets = new HashMap<>();
+			f.forEachTarget(v, targets::put);
+			assertEquals("expected same targets of " + v, g.targets(v), targets);
+			Map<String, Integer> sources = new HashMap<>();
+			f.forEachSource(v, sources::put);
+			assertEquals("expected same sources of " + v, g.sources(v), sources);
+		}
+	}
+
+	@Test
+	public void testSnapshotIndependentOfOriginal() {
+		Graph<String> g = sample();
+		FrozenGraph<String> f = FrozenGraph.freeze(g);
+		g.set("A", "B", 0);
+		g.remove("C");
+
+		assertEquals("expected A->B kept", 1, f.weight("A", "B"));
+		assertTrue("expected C kept", f.vertices().contains("C"));
+	}
+
+	@Test
+	public void testFreezeFrozenReturnsSame() {
+		FrozenGraph<String> f = FrozenGraph.freeze(sample());
+
+		assertSame("expected no copy", f, FrozenGraph.freeze(f));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testAddUnsupported() {
+		FrozenGraph.freeze(sample()).add("E");
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSetUnsupported() {
+		FrozenGraph.freeze(sample()).set("A", "B", 2);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testRemoveUnsupported() {
+		FrozenGraph.freeze(sample()).remove("A");
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testVerticesUnmodifiable() {
+		FrozenGraph.freeze(sample()).vertices().clear();
+	}
+
+	@Test
+	public void testConcurrentReaders() throws InterruptedException {
+		Graph<String> g = new ConcreteEdgesGraph();
+		for (int i = 0; i < 100; i++) {
+			g.set("v" + i, "v" + ((i + 1) % 100), i + 1);
+		}
+		FrozenGraph<String> f = FrozenGraph.freeze(g);
+		AtomicInteger errors = new AtomicInteger();
+
+		List<Thread> readers = new ArrayList<>();
+		for (int r = 0; r < 4; r++) {
+			Thread reader = new Thread(() -> {
+				for (int round = 0; round < 1000; round++) {
+					for (int i = 0; i < 100; i++) {
+						String next = "v" + ((i + 1) % 100);
+						if (f.weight("v" + i, next) != i + 1
+								|| !f.sources(next).equals(Collections.singletonMap("v" + i, i + 1))) {
+							errors.incrementAndGet();
+						}
+					}
+				}
+			});
+			readers.add(reader);
+			reader.start();
+		}
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		assertEquals("expected every read to see the snapshot", 0, errors.get());
+	}
+
+}
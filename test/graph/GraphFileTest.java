@@ -0,0 +1,156 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for GraphFile.
+ */
+public class GraphFileTest {
+
+	/*
+	 * Testing strategy
+	 * 
+	 * Partition write/load: graph empty, vertices without edges, self loops,
+	 * non-ASCII labels, weights needing 1 and 5 varint bytes, many vertices;
+	 * source graph ConcreteEdgesGraph or CompactGraph; file new or replacing
+	 * one that is mapped
+	 * 
+	 * Partition open/verify: valid file, not a graph file, truncated file,
+	 * corrupted body
+	 */
+
+	@Test(expected = AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	private static File tempFile() throws IOException {
+		File f = File.createTempFile("graph", ".bin");
+		f.deleteOnExit();
+		return f;
+	}
+
+	private static Graph<String> sample() {
+		Graph<String> g = new ConcreteEdgesGraph();
+		g.set("A", "B", 1);
+		g.set("A", "C", 2);
+		g.set("B", "C", 300);
+		g.set("C", "C", Integer.MAX_VALUE);
+		g.set("\u00fcn\u00efc\u00f8d\u00e9", "A", 5);
+		g.set("\u20ac", "\u00fcn\u00efc\u00f8d\u00e9", 6);
+		g.add("D");
+		return g;
+	}
+
+	private static void assertSameGraph(Graph<String> expected, Graph<String> actual) {
+		assertEquals("expected same vertices", expected.vertices(), actual.vertices());
+		for (String v : expected.vertices()) {
+			assertEquals("expected same targets of " + v, expected.targets(v), actual.targets(v));
+			assertEquals("expected same sources of " + v, expected.sources(v), actual.sources(v));
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		File f = tempFile();
+		Graph<String> g = sample();
+		GraphFile.write(g, f);
+		GraphFile file = GraphFile.open(f);
+
+		assertEquals("expected vertex count", 6, file.vertexCount());
+		assertEquals("expected edge count", 6, file.edgeCount());
+		assertSameGraph(g, file.load());
+	}
+
+	@Test
+	public void testRoundTripEmpty() throws IOException {
+		File f = tempFile();
+		GraphFile.write(new ConcreteEdgesGraph(), f);
+		GraphFile file = GraphFile.open(f);
+
+		assertEquals("expected no vertices", 0, file.vertexCount());
+		assertTrue("expected empty graph", file.load().vertices().isEmpty());
+	}
+
+	@Test
+	public void testRoundTripCompactGraph() throws IOException {
+		File f = tempFile();
+		Graph<String> g = new CompactGraph<>();
+		Random random = new Random(7);
+		for (int i = 0; i < 5000; i++) {
+			g.increment("v" + random.nextInt(800), "v" + random.nextInt(800), 1 + random.nextInt(1000));
+		}
+		GraphFile.write(g, f);
+
+		assertSameGraph(g, GraphFile.open(f).load());
+	}
+
+	@Test
+	public void testOverwriteWhileMapped() throws IOException {
+		File f = tempFile();
+		Graph<String> g = sample();
+		GraphFile.write(g, f);
+		GraphFile old = GraphFile.open(f);
+
+		Graph<String> bigger = new CompactGraph<>();
+		for (int i = 0; i < 2000; i++) {
+			bigger.set("w" + i, "w" + (i * 7 % 2000), i + 1);
+		}
+		GraphFile.write(bigger, f);
+
+		assertSameGraph(g, old.load());
+		assertSameGraph(bigger, GraphFile.open(f).load());
+		File[] left = f.getAbsoluteFile().getParentFile()
+				.listFiles((dir, name) -> name.startsWith(f.getName() + ".") && name.endsWith(".tmp"));
+		assertEquals("expected no temporary files left", 0, left.length);
+	}
+
+	@Test
+	public void testLabelsSortedByBytes() throws IOException {
+		File f = tempFile();
+		GraphFile.write(sample(), f);
+		GraphFile file = GraphFile.open(f);
+
+		assertEquals("expected first label", "A", file.label(0));
+		assertEquals("expected last label", "\u20ac", file.label(5));
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotAGraphFile() throws IOException {
+		GraphFile.open(new File("test/poet/poet1.txt"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testTruncated() throws IOException {
+		File f = tempFile();
+		GraphFile.write(sample(), f);
+		try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+			raf.setLength(raf.length() - 8);
+		}
+		GraphFile.open(f);
+	}
+
+	@Test(expected = IOException.class)
+	public void testCorruptedBody() throws IOException {
+		File f = tempFile();
+		GraphFile.write(sample(), f);
+		try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+			raf.seek(raf.length() - 12);
+			int b = raf.read();
+			raf.seek(raf.length() - 12);
+			raf.write(b ^ 0x40);
+		}
+		GraphFile.open(f).load();
+	}
+
+}
@@ -6,6 +6,7 @@ package graph;
 import static org.junit.Assert.*;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -48,6 +49,22 @@ public abstract class GraphInstanceTest {
 	 *	Partition Graph.targets(vertex):
 	 * 		vertex: not exists in graph, exists
 	 * 		vertex targets: 0, > 0
+	 * 
+	 *	Partition Graph.weight(source, target):
+	 * 		edge: exists, removed, never existed
+	 * 
+	 *	Partition Graph.increment(source, target, delta):
+	 * 		edge: exists, not exists
+	 * 		delta: < 0, 0, > 0
+	 * 		new weight: 0, < 0, > 0
+	 * 
+	 *	Partition Graph.incrementAll(batch):
+	 * 		batch: empty, several changes to the same edge, changes to
+	 * 		different edges, changes to many edges
+	 * 
+	 *	Partition Graph.forEachTarget(vertex), Graph.forEachSource(vertex):
+	 * 		vertex: not exists in graph, exists
+	 * 		vertex edges: 0, > 0
 	 * 	
 	 */ 
 
@@ -376,4 +393,159 @@ public abstract class GraphInstanceTest {
 		assertTrue("Expected v2 to have target v3", targetsV2.containsKey(v3));
 	}
 
+	/** Graph.weight(): covers edge exists, removed, never existed */
+	@Test
+	public void testWeight() {
+		Graph<String> graph = emptyInstance();
+
+		graph.set("vertex1", "vertex2", 3);
+		graph.set("vertex2", "vertex3", 4);
+		graph.set("vertex2", "vertex3", 0);
+
+		assertEquals("Expected weight of existing edge", 3, graph.weight("vertex1", "vertex2"));
+		assertEquals("Expected no reverse edge", 0, graph.weight("vertex2", "vertex1"));
+		assertEquals("Expected removed edge to have no weight", 0, graph.weight("vertex2", "vertex3"));
+		assertEquals("Expected no edge from missing vertex", 0, graph.weight("vertex4", "vertex1"));
+	}
+
+	/** Graph.forEachTarget(): covers vertex not in graph, 0 targets, > 0 targets */
+	@Test
+	public void testForEachTarget() {
+		Graph<String> graph = emptyInstance();
+
+		graph.set("vertex1", "vertex2", 1);
+		graph.set("vertex1", "vertex3", 2);
+		graph.set("vertex3", "vertex1", 5);
+		graph.add("vertex4");
+
+		Map<String, Integer> visited = new HashMap<>();
+		graph.forEachTarget("vertex1", (vertex, weight) -> assertNull("Expected each target once",
+				visited.put(vertex, weight)));
+		assertEquals("Expected same edges as targets()", graph.targets("vertex1"), visited);
+
+		graph.forEachTarget("vertex4", (vertex, weight) -> fail("Expected no targets"));
+		graph.forEachTarget("vertex5", (vertex, weight) -> fail("Expected no targets"));
+	}
+
+	/** Graph.forEachSource(): covers vertex not in graph, 0 sources, > 0 sources */
+	@Test
+	public void testForEachSource() {
+		Graph<String> graph = emptyInstance();
+
+		graph.set("vertex1", "vertex3", 1);
+		graph.set("vertex2", "vertex3", 2);
+		graph.set("vertex3", "vertex3", 3);
+		graph.add("vertex4");
+
+		Map<String, Integer> visited = new HashMap<>();
+		graph.forEachSource("vertex3", (vertex, weight) -> assertNull("Expected each source once",
+				visited.put(vertex, weight)));
+		assertEquals("Expected same edges as sources()", graph.sources("vertex3"), visited);
+
+		graph.forEachSource("vertex4", (vertex, weight) -> fail("Expected no sources"));
+		graph.forEachSource("vertex5", (vertex, weight) -> fail("Expected no sources"));
+	}
+
+	/** Graph.increment(): covers edge not exists, delta > 0 */
+	@Test
+	public void testIncrementAddsEdge() {
+		Graph<String> graph = emptyInstance();
+
+		int weight = graph.increment("vertex1", "vertex2", 3);
+
+		assertEquals("Expected new weight", 3, weight);
+		assertEquals("Expected edge added", Collections.singletonMap("vertex2", 3), graph.targets("vertex1"));
+		assertEquals("Expected vertices added", 2, graph.vertices().size());
+	}
+
+	/** Graph.increment(): covers edge exists, delta > 0 and delta < 0, new weight > 0 */
+	@Test
+	public void testIncrementUpdatesEdge() {
+		Graph<String> graph = emptyInstance();
+		graph.set("vertex1", "vertex2", 3);
+
+		assertEquals("Expected weight increased", 5, graph.increment("vertex1", "vertex2", 2));
+		assertEquals("Expected weight decreased", 1, graph.increment("vertex1", "vertex2", -4));
+		assertEquals("Expected weight unchanged", 1, graph.increment("vertex1", "vertex2", 0));
+		assertEquals("Expected edge updated", Collections.singletonMap("vertex1", 1), graph.sources("vertex2"));
+	}
+
+	/** Graph.increment(): covers edge exists, new weight 0 and < 0 */
+	@Test
+	public void testIncrementRemovesEdge() {
+		Graph<String> graph = emptyInstance();
+		graph.set("vertex1", "vertex2", 3);
+		graph.set("vertex2", "vertex1", 3);
+
+		assertEquals("Expected edge removed", 0, graph.increment("vertex1", "vertex2", -3));
+		assertEquals("Expected edge removed", 0, graph.increment("vertex2", "vertex1", -5));
+		assertTrue("Expected no targets", graph.targets("vertex1").isEmpty());
+		assertTrue("Expected no targets", graph.targets("vertex2").isEmpty());
+		assertEquals("Expected vertices kept", 2, graph.vertices().size());
+	}
+
+	/** Graph.increment(): covers edge not exists, delta 0 and < 0 */
+	@Test
+	public void testIncrementNoEdgeNoChange() {
+		Graph<String> graph = emptyInstance();
+		graph.add("vertex1");
+
+		assertEquals("Expected no edge", 0, graph.increment("vertex1", "vertex2", 0));
+		assertEquals("Expected no edge", 0, graph.increment("vertex1", "vertex2", -1));
+		assertEquals("Expected graph not modified", Collections.singleton("vertex1"), graph.vertices());
+	}
+
+	/** Graph.incrementAll(): covers empty batch, repeated edge, different edges */
+	@Test
+	public void testIncrementAll() {
+		Graph<String> graph = emptyInstance();
+		graph.set("vertex1", "vertex2", 1);
+
+		graph.incrementAll(new EdgeBatch<String>());
+		assertEquals("Expected graph not modified", 2, graph.vertices().size());
+
+		EdgeBatch<String> batch = new EdgeBatch<>(1);
+		batch.add("vertex1", "vertex2", 1);
+		batch.add("vertex2", "vertex3", 4);
+		batch.add("vertex1", "vertex2", 5);
+		batch.add("vertex2", "vertex3", -4);
+		batch.add("vertex3", "vertex1", 2);
+		graph.incrementAll(batch);
+
+		assertEquals("Expected batch unchanged", 5, batch.size());
+		assertEquals("Expected repeated changes summed", 7, graph.weight("vertex1", "vertex2"));
+		assertEquals("Expected edge added then removed", 0, graph.weight("vertex2", "vertex3"));
+		assertEquals("Expected new edge", 2, graph.weight("vertex3", "vertex1"));
+		assertEquals("Expected new vertex", 3, graph.vertices().size());
+	}
+
+	/** Graph.incrementAll(): covers changes to many different edges */
+	@Test
+	public void testIncrementAllManyEdges() {
+		Graph<String> graph = emptyInstance();
+		EdgeBatch<String> batch = new EdgeBatch<>();
+		for (int i = 0; i < 200; i++) {
+			batch.add("v" + i % 20, "v" + i % 7, 1);
+		}
+		for (int i = 0; i < 20; i++) {
+			batch.add("v" + i, "v0", -1);
+		}
+		graph.incrementAll(batch);
+
+		for (int s = 0; s < 20; s++) {
+			for (int t = 0; t < 7; t++) {
+				int expected = 0;
+				for (int i = 0; i < 200; i++) {
+					if (i % 20 == s && i % 7 == t) {
+						expected++;
+					}
+				}
+				if (t == 0) {
+					expected = Math.max(0, expected - 1);
+				}
+				assertEquals("Expected weight of v" + s + " -> v" + t, expected, graph.weight("v" + s, "v" + t));
+			}
+		}
+	}
+
 }
@@ -21,6 +21,8 @@ public class GraphStaticTest {
     //   empty()
     //     no inputs, only output is empty graph
     //     observe with vertices()
+    //     graphs from separate calls independent
+    //     label types: String, Integer
     
     @Test(expected=AssertionError.class)
     public void testAssertionsEnabled() {
@@ -33,6 +35,25 @@ public class GraphStaticTest {
                 Collections.emptySet(), Graph.empty().vertices());
     }
     
-    // TODO test other vertex label types in Problem 3.2
+    @Test
+    public void testEmptyGraphsIndependent() {
+        Graph<String> g1 = Graph.empty();
+        Graph<String> g2 = Graph.empty();
+        g1.set("a", "b", 1);
+        
+        assertEquals("expected edge in first graph",
+                Collections.singletonMap("b", 1), g1.targets("a"));
+        assertEquals("expected second graph unchanged",
+                Collections.emptySet(), g2.vertices());
+    }
+    
+    @Test
+    public void testEmptyIntegerLabels() {
+        Graph<Integer> g = Graph.empty();
+        g.set(1, 2, 3);
+        
+        assertEquals("expected edge 1->2",
+                Collections.singletonMap(1, 3), g.sources(2));
+    }
     
 }
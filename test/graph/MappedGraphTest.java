@@ -0,0 +1,227 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests for MappedGraph.
+ * 
+ * MappedGraph is read-only, so to run the GraphInstanceTest tests against it,
+ * emptyInstance() provides a graph that applies every change to an ordinary
+ * graph, writes that to a file, and answers every query from a MappedGraph
+ * over the file.
+ */
+public class MappedGraphTest extends GraphInstanceTest {
+
+	/*
+	 * Provide a MappedGraph, rewritten after every change, for tests in
+	 * GraphInstanceTest.
+	 */
+	@Override
+	public Graph<String> emptyInstance() {
+		return new RemappedGraph();
+	}
+
+	/*
+	 * Testing MappedGraph...
+	 * 
+	 * Partitions: labels that are prefixes of each other, non-ASCII labels,
+	 * label not in graph, vertices() view contains and iteration, mutators
+	 * throw, vertices with many edges, bridges between vertices with none,
+	 * one or many, self loops on the path
+	 */
+
+	private static File write(Graph<String> g) {
+		try {
+			File f = File.createTempFile("mapped", ".graph");
+			f.deleteOnExit();
+			GraphFile.write(g, f);
+			return f;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static MappedGraph map(Graph<String> g) {
+		try {
+			return MappedGraph.open(write(g));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Test
+	public void testPrefixLabels() {
+		Graph<String> g = new ConcreteEdgesGraph();
+		g.set("a", "ab", 1);
+		g.set("ab", "abc", 2);
+		g.set("abc", "a", 3);
+		g.set("\u00e9", "a", 4);
+		MappedGraph m = map(g);
+
+		assertEquals("expected weight", 1, m.weight("a", "ab"));
+		assertEquals("expected weight", 2, m.weight("ab", "abc"));
+		assertEquals("expected no edge", 0, m.weight("a", "abc"));
+		assertEquals("expected weight", 4, m.weight("\u00e9", "a"));
+		assertEquals("expected sources", 2, m.sources("a").size());
+		assertEquals("expected no edges at missing label", 0, m.weight("abcd", "a"));
+		assertTrue("expected no targets at missing label", m.targets("b").isEmpty());
+	}
+
+	@Test
+	public void testVerticesView() {
+		Graph<String> g = new ConcreteEdgesGraph();
+		g.set("x", "y", 1);
+		g.add("z");
+		Set<String> vertices = map(g).vertices();
+
+		assertEquals("expected size", 3, vertices.size());
+		assertTrue("expected contains", vertices.contains("z"));
+		assertFalse("expected not contains", vertices.contains("w"));
+		assertFalse("expected not contains non-String", vertices.contains(1));
+		assertEquals("expected iteration", new HashSet<>(Arrays.asList("x", "y", "z")), new HashSet<>(vertices));
+	}
+
+	@Test
+	public void testManyEdges() {
+		Graph<String> g = new CompactGraph<>();
+		for (int i = 0; i < 500; i++) {
+			g.set("hub", "v" + i, i + 1);
+			g.set("v" + i, "hub", 1000 + i);
+		}
+		MappedGraph m = map(g);
+
+		assertEquals("expected targets", g.targets("hub"), m.targets("hub"));
+		assertEquals("expected sources", g.sources("hub"), m.sources("hub"));
+		assertEquals("expected weight", 250, m.weight("hub", "v249"));
+		assertEquals("expected weight", 1499, m.weight("v499", "hub"));
+	}
+
+	@Test
+	public void testBridges() {
+		Graph<String> g = new CompactGraph<>();
+		for (int i = 0; i < 50; i++) {
+			g.set("from", "v" + i, i + 1);
+			if (i % 3 == 0) {
+				g.set("v" + i, "to", 100);
+			}
+		}
+		g.set("w", "to", 1);
+		g.set("from", "from", 7);
+		g.set("from", "to", 5);
+		g.set("to", "to", 9);
+		MappedGraph m = map(g);
+
+		Map<String, Integer> expected = new HashMap<>();
+		for (String b : g.targets("from").keySet()) {
+			if (g.weight(b, "to") > 0) {
+				expected.put(b, g.weight("from", b) + g.weight(b, "to"));
+			}
+		}
+		Map<String, Integer> bridges = new HashMap<>();
+		List<String> order = new ArrayList<>();
+		m.forEachBridge("from", "to", (b, first, second) -> {
+			assertNull("expected each bridge once", bridges.put(b, first + second));
+			order.add(b);
+		});
+		assertEquals(expected, bridges);
+		List<String> sorted = new ArrayList<>(order);
+		Collections.sort(sorted);
+		assertEquals("expected bridges in label order", sorted, order);
+
+		m.forEachBridge("to", "from", (b, first, second) -> fail("expected no path, got " + b));
+		m.forEachBridge("nowhere", "to", (b, first, second) -> fail("expected no path, got " + b));
+		assertEquals("expected weight from the shorter row", 5, m.weight("from", "to"));
+		assertEquals("expected no edge", 0, m.weight("w", "from"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testAddThrows() {
+		map(new ConcreteEdgesGraph()).add("A");
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSetThrows() {
+		map(new ConcreteEdgesGraph()).set("A", "B", 1);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testRemoveThrows() {
+		map(new ConcreteEdgesGraph()).remove("A");
+	}
+
+	/** Applies changes to a ConcreteEdgesGraph and reads from a fresh mapping. */
+	private static class RemappedGraph implements Graph<String> {
+
+		private final Graph<String> changes = new ConcreteEdgesGraph();
+		private MappedGraph mapped = map(changes);
+
+		@Override
+		public boolean add(String vertex) {
+			boolean added = changes.add(vertex);
+			mapped = map(changes);
+			return added;
+		}
+
+		@Override
+		public int set(String source, String target, int weight) {
+			int previous = changes.set(source, target, weight);
+			mapped = map(changes);
+			return previous;
+		}
+
+		@Override
+		public boolean remove(String vertex) {
+			boolean removed = changes.remove(vertex);
+			mapped = map(changes);
+			return removed;
+		}
+
+		@Override
+		public Set<String> vertices() {
+			return mapped.vertices();
+		}
+
+		@Override
+		public Map<String, Integer> sources(String target) {
+			return mapped.sources(target);
+		}
+
+		@Override
+		public Map<String, Integer> targets(String source) {
+			return mapped.targets(source);
+		}
+
+		@Override
+		public int weight(String source, String target) {
+			return mapped.weight(source, target);
+		}
+
+		@Override
+		public void forEachTarget(String source, EdgeVisitor<? super String> visitor) {
+			mapped.forEachTarget(source, visitor);
+		}
+
+		@Override
+		public void forEachSource(String target, EdgeVisitor<? super String> visitor) {
+			mapped.forEachSource(target, visitor);
+		}
+	}
+
+}
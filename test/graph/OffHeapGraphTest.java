@@ -0,0 +1,162 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for OffHeapGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against OffHeapGraph, as well as
+ * tests for that particular implementation.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class OffHeapGraphTest extends GraphInstanceTest {
+
+	/*
+	 * Provide an OffHeapGraph for tests in GraphInstanceTest.
+	 */
+	@Override
+	public Graph<String> emptyInstance() {
+		return new OffHeapGraph<>();
+	}
+
+	/*
+	 * Testing OffHeapGraph...
+	 * 
+	 * Partitions: self loops, removed vertex ids and edge records reused,
+	 * enough edges to grow every buffer, closed or open, non-String labels,
+	 * ids private or from a symbol table shared with another graph
+	 */
+
+	@Test
+	public void testSelfLoopRemoved() {
+		Graph<String> g = emptyInstance();
+		g.set("A", "A", 2);
+		g.set("A", "B", 3);
+		g.set("B", "A", 4);
+		g.set("B", "B", 5);
+
+		assertEquals("expected self loop as target", (Integer) 2, g.targets("A").get("A"));
+		assertEquals("expected self loop as source", (Integer) 2, g.sources("A").get("A"));
+		assertTrue("expected A removed", g.remove("A"));
+		assertEquals("expected only self loop at B", Collections.singletonMap("B", 5), g.targets("B"));
+		assertEquals("expected only self loop at B", Collections.singletonMap("B", 5), g.sources("B"));
+		assertEquals("expected no edge", 0, g.weight("A", "A"));
+	}
+
+	@Test
+	public void testRemovedVertexReused() {
+		OffHeapGraph<String> g = new OffHeapGraph<>();
+		g.set("A", "B", 1);
+		g.set("C", "A", 2);
+		long bytes = g.offHeapBytes();
+		g.remove("A");
+		g.set("D", "B", 5);
+		g.set("B", "D", 6);
+
+		assertEquals("expected only D as source of B", Collections.singletonMap("D", 5), g.sources("B"));
+		assertTrue("expected no targets at C", g.targets("C").isEmpty());
+		assertFalse("expected A gone", g.vertices().contains("A"));
+		assertEquals("expected storage reused", bytes, g.offHeapBytes());
+	}
+
+	@Test
+	public void testManyEdgesGrowBuffers() {
+		OffHeapGraph<String> g = new OffHeapGraph<>();
+		long initial = g.offHeapBytes();
+		Map<String, Integer> expected = new HashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			g.set("hub", "v" + i, i + 1);
+			g.set("v" + i, "v" + ((i + 1) % 1000), 7);
+			expected.put("v" + i, i + 1);
+		}
+		assertTrue("expected buffers grown", g.offHeapBytes() > initial);
+		assertEquals("expected all targets of hub", expected, g.targets("hub"));
+
+		for (int i = 0; i < 1000; i += 2) {
+			assertEquals("expected previous weight", i + 1, g.set("hub", "v" + i, 0));
+			expected.remove("v" + i);
+		}
+		assertEquals("expected odd targets of hub", expected, g.targets("hub"));
+		assertEquals("expected ring edge", 7, g.weight("v999", "v0"));
+		assertEquals("expected sources of v1", 2, g.sources("v1").size());
+	}
+
+	@Test
+	public void testCloseReleases() {
+		OffHeapGraph<String> g = new OffHeapGraph<>();
+		g.set("A", "B", 1);
+		assertTrue("expected off-heap storage", g.offHeapBytes() > 0);
+		g.close();
+		g.close();
+
+		assertEquals("expected no off-heap storage", 0, g.offHeapBytes());
+		try {
+			g.targets("A");
+			fail("expected IllegalStateException");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSetAfterClose() {
+		OffHeapGraph<String> g = new OffHeapGraph<>();
+		g.close();
+		g.set("A", "B", 1);
+	}
+
+	@Test
+	public void testIntegerLabels() {
+		try (OffHeapGraph<Integer> g = new OffHeapGraph<>()) {
+			g.set(1, 2, 7);
+
+			assertEquals("expected edge 1->2", Collections.singletonMap(2, 7), g.targets(1));
+			assertEquals("expected previous weight", 7, g.set(1, 2, 8));
+		}
+	}
+
+	@Test
+	public void testSharedSymbolTable() {
+		SymbolTable<String> symbols = new SymbolTable<>();
+		symbols.intern("X");
+		OffHeapGraph<String> g1 = new OffHeapGraph<>(symbols);
+		OffHeapGraph<String> g2 = new OffHeapGraph<>(symbols);
+		String a = new String("A");
+		g1.set(a, "B", 1);
+		g2.set("B", new String("A"), 2);
+		g2.set("C", "B", 3);
+
+		assertEquals("expected one id per label", 4, symbols.size());
+		assertEquals("expected edge in first graph", Collections.singletonMap("B", 1), g1.targets("A"));
+		assertEquals("expected edge in second graph", Collections.singletonMap("A", 2), g2.targets("B"));
+		assertSame("expected table instance as label", a, g2.vertices().stream().filter("A"::equals).findAny().get());
+		assertEquals("expected one duplicate", 1, symbols.duplicates());
+	}
+
+	@Test
+	public void testSharedSymbolTableRemove() {
+		SymbolTable<String> symbols = new SymbolTable<>();
+		OffHeapGraph<String> g = new OffHeapGraph<>(symbols);
+		g.set("A", "B", 1);
+		g.remove("A");
+		g.set("C", "B", 5);
+		g.set("A", "C", 2);
+
+		assertEquals("expected removed label kept in table", 0, symbols.id("A"));
+		assertEquals("expected new id for new label", 2, symbols.id("C"));
+		assertEquals("expected edge to B", Collections.singletonMap("B", 5), g.targets("C"));
+		assertEquals("expected readded edge", Collections.singletonMap("C", 2), g.targets("A"));
+		assertEquals("expected vertices", 3, g.vertices().size());
+	}
+
+}
@@ -0,0 +1,129 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for SymbolTable.
+ */
+public class SymbolTableTest {
+
+	/*
+	 * Testing strategy
+	 *
+	 * Partition intern: label new, equal to a label in the table as the same
+	 * instance or another instance; enough labels to grow the table; one
+	 * thread or several at once
+	 *
+	 * Partition id/label/canonical: label in the table or not; String or
+	 * other labels
+	 */
+
+	@Test(expected = AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	@Test
+	public void testEmpty() {
+		SymbolTable<String> symbols = new SymbolTable<>();
+
+		assertEquals("expected no labels", 0, symbols.size());
+		assertEquals("expected no id", -1, symbols.id("A"));
+		assertEquals("expected no duplicates", 0, symbols.duplicates());
+	}
+
+	@Test
+	public void testDenseStableIds() {
+		SymbolTable<String> symbols = new SymbolTable<>();
+		for (int i = 0; i < 100; i++) {
+			assertEquals("expected next id", i, symbols.intern("w" + i));
+		}
+		for (int i = 0; i < 100; i++) {
+			assertEquals("expected same id", i, symbols.intern("w" + i));
+			assertEquals("expected id without interning", i, symbols.id("w" + i));
+			assertEquals("expected label of id", "w" + i, symbols.label(i));
+		}
+		assertEquals("expected 100 labels", 100, symbols.size());
+	}
+
+	@Test
+	public void testCanonicalInstance() {
+		SymbolTable<String> symbols = new SymbolTable<>();
+		String first = new String("hello");
+		String second = new String("hello");
+
+		assertSame("expected first instance kept", first, symbols.canonical(first));
+		assertSame("expected first instance returned", first, symbols.canonical(second));
+		assertSame("expected first instance returned again", first, symbols.canonical(first));
+	}
+
+	@Test
+	public void testDuplicatesCounted() {
+		SymbolTable<String> symbols = new SymbolTable<>();
+		symbols.intern(new String("hello"));
+		symbols.intern(new String("hello"));
+		symbols.intern(new String("hello"));
+		symbols.id(new String("hello"));
+
+		assertEquals("expected two duplicates", 2, symbols.duplicates());
+		// String object plus a char array of 5 chars, aligned to 8 bytes
+		assertEquals("expected bytes of two strings", 2 * (24 + 32), symbols.savedBytes());
+	}
+
+	@Test
+	public void testIntegerLabels() {
+		SymbolTable<Integer> symbols = new SymbolTable<>();
+		// outside the Integer cache, so equal but distinct objects
+		Integer big = Integer.valueOf(1000);
+		Integer same = Integer.valueOf(999) + 1;
+		assertNotSame("expected distinct Integer objects", big, same);
+		symbols.intern(big);
+		symbols.intern(same);
+
+		assertEquals("expected one label", 1, symbols.size());
+		assertSame("expected first instance", big, symbols.label(0));
+		assertEquals("expected default size", 16, symbols.savedBytes());
+	}
+
+	@Test
+	public void testConcurrentIntern() throws InterruptedException {
+		final int labels = 2000;
+		SymbolTable<String> symbols = new SymbolTable<>();
+		List<Thread> threads = new ArrayList<>();
+		int[][] seen = new int[4][labels];
+		for (int t = 0; t < seen.length; t++) {
+			int[] ids = seen[t];
+			int offset = t * 500;
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < labels; i++) {
+					int label = (i + offset) % labels;
+					ids[label] = symbols.intern("w" + label);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals("expected every label once", labels, symbols.size());
+		for (int label = 0; label < labels; label++) {
+			int id = seen[0][label];
+			assertEquals("expected label of id", "w" + label, symbols.label(id));
+			for (int[] ids : seen) {
+				assertEquals("expected same id in every thread", id, ids[label]);
+			}
+		}
+	}
+
+}
@@ -5,6 +5,21 @@ package poet;
 
 import static org.junit.Assert.*;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import graph.BridgeGraph;
+import graph.BridgeVisitor;
+import graph.ConcreteEdgesGraph;
+import graph.Graph;
+import graph.SymbolTable;
+
 import org.junit.Test;
 
 /**
@@ -18,6 +33,27 @@ public class GraphPoetTest {
 	 * 	The partitions are as follows:
 	 * 		1) Number of bridges: 0,1 > 1
 	 * 		2) Number of associations (in graph): 1, > 1
+	 * 		3) Bridges with equal path weights, bridge across a line break
+	 * 		4) Corpus tokenizers: ASCII, non-ASCII characters, punctuation,
+	 * 		   repeated words
+	 * 		5) Parallel build: one chunk, more chunks than words, chunk
+	 * 		   boundaries inside words, pair count overflowing an int
+	 * 		6) Bridge index: none, holds every pair, capped below the
+	 * 		   number of bridged pairs, empty
+	 * 		7) Appended text: poet not appendable, one piece, several pieces,
+	 * 		   appended from several threads while poems are written
+	 * 		8) Shared vocabulary: corpus read again by a second poet
+	 * 		9) Graph backend: frozen, concurrent, compact, from a factory,
+	 * 		   a BridgeGraph
+	 * 		10) Batch of poems: empty, inputs and word pairs repeated, more
+	 * 		    pairs than one task looks up, list or stream, on the calling
+	 * 		    thread or an executor
+	 * 		11) Caches: none, hit, miss, evicted by entries or by bytes,
+	 * 		    emptied by appended text, shared appends, batch
+	 * 		12) Input: no words, extra whitespace, repeated words, very long
+	 * 		13) Streamed poem: same as poem(String), words split across
+	 * 		    reads, output written before the input ends
+	 * 		14) Saved graph: loaded onto the heap, mapped in place
 	 */
 
 	@Test(expected = AssertionError.class)
@@ -62,4 +98,495 @@ public class GraphPoetTest {
 		assertTrue(gp.poem(inputText).equals(expectedOutput));
 	}
 
+	@Test
+	public void tiedBridgesChooseFirstWord() throws IOException {
+		File f = new File("test/poet/poet2.txt");
+		GraphPoet gp = new GraphPoet(f);
+		assertEquals("A x B", gp.poem("A B"));
+	}
+
+	@Test
+	public void bridgeIndexMatchesSearch() throws IOException {
+		String[] inputs = { "A B D", "B E D C", "D B C E B", "A B C D E" };
+		for (String corpus : new String[] { "test/poet/poet.txt", "test/poet/poet1.txt", "test/poet/poet2.txt" }) {
+			File f = new File(corpus);
+			GraphPoet search = new GraphPoet(f);
+			for (int maxPairs : new int[] { Integer.MAX_VALUE, 3, 1, 0 }) {
+				GraphPoet indexed = new GraphPoet(f, maxPairs);
+				for (String input : inputs) {
+					assertEquals(corpus + " with " + maxPairs + " pairs", search.poem(input), indexed.poem(input));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void bridgeIndexHoldsEveryPair() throws IOException {
+		File f = new File("test/poet/poet1.txt");
+		GraphPoet gp = new GraphPoet(f, Integer.MAX_VALUE);
+		assertEquals("A B c D", gp.poem("A B D"));
+		assertEquals("A D e B", gp.poem("A D B"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void bridgeIndexNegativeCap() throws IOException {
+		new GraphPoet(new File("test/poet/poet1.txt"), -1);
+	}
+
+	@Test
+	public void lineBreakSeparatesWords() throws IOException {
+		File f = new File("test/poet/poet3.txt");
+		GraphPoet gp = new GraphPoet(f);
+		assertEquals(Arrays.asList("foo", "bar", "baz", "qux"), gp.getWordsFromTextFile(f));
+		assertEquals("Foo bar baz", gp.poem("Foo baz"));
+		assertEquals("bar baz qux", gp.poem("bar qux"));
+	}
+
+	@Test
+	public void mappedTokenizerMatchesStreaming() throws IOException {
+		for (String corpus : new String[] { "test/poet/poet.txt", "test/poet/poet1.txt", "test/poet/poet3.txt",
+				"test/poet/poet4.txt", "src/poet/mugar-omni-theater.txt" }) {
+			File f = new File(corpus);
+			List<String> mapped = new ArrayList<>();
+			MappedCorpusTokenizer tokenizer = new MappedCorpusTokenizer(f);
+			for (String word = tokenizer.next(); word != null; word = tokenizer.next()) {
+				mapped.add(word);
+			}
+			assertEquals(corpus, new GraphPoet(f).getWordsFromTextFile(f), mapped);
+		}
+	}
+
+	@Test
+	public void mappedTokenizerSplitsNonAscii() throws IOException {
+		MappedCorpusTokenizer tokenizer = new MappedCorpusTokenizer(new File("test/poet/poet4.txt"));
+		List<String> words = new ArrayList<>();
+		for (String word = tokenizer.next(); word != null; word = tokenizer.next()) {
+			words.add(word);
+		}
+		assertEquals(Arrays.asList("h", "llo", "world", "it's", "na", "ve_text", "2nd", "world", "hello"), words);
+		assertSame("expected repeated word to be shared", words.get(2), words.get(7));
+		assertEquals(8, tokenizer.vocabularySize());
+	}
+
+	@Test
+	public void parallelBuildMatchesSequential() throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			for (String corpus : new String[] { "test/poet/poet.txt", "test/poet/poet1.txt", "test/poet/poet3.txt",
+					"test/poet/poet4.txt", "src/poet/mugar-omni-theater.txt" }) {
+				File f = new File(corpus);
+				Graph<String> sequential = new ConcreteEdgesGraph();
+				MappedCorpusTokenizer tokenizer = new MappedCorpusTokenizer(f);
+				String source = tokenizer.next();
+				for (String target = tokenizer.next(); target != null; source = target, target = tokenizer.next()) {
+					sequential.set(source, target, sequential.weight(source, target) + 1);
+				}
+				for (int chunks : new int[] { 1, 2, 5, 40 }) {
+					Graph<String> parallel = new ConcreteEdgesGraph();
+					ParallelCorpusBuilder.addBigrams(new MappedCorpus(f), parallel, pool, chunks);
+					assertEquals(corpus + " in " + chunks, sequential.vertices(), parallel.vertices());
+					for (String v : sequential.vertices()) {
+						assertEquals(corpus + " in " + chunks, sequential.targets(v), parallel.targets(v));
+					}
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test(expected = ArithmeticException.class)
+	public void parallelCountOverflowRejected() {
+		ParallelCorpusBuilder.Counts left = new ParallelCorpusBuilder.Counts();
+		left.add("a", "b", Integer.MAX_VALUE);
+		ParallelCorpusBuilder.Counts right = new ParallelCorpusBuilder.Counts();
+		right.add("a", "b", 1);
+		left.append(right);
+	}
+
+	@Test
+	public void parallelPoetMatchesSequential() throws IOException {
+		File f = new File("test/poet/poet.txt");
+		GraphPoet gp = GraphPoet.parallel(f, 2);
+		assertEquals(new GraphPoet(f).poem("Seek to explore new and exciting synergies!"),
+				gp.poem("Seek to explore new and exciting synergies!"));
+	}
+
+	@Test
+	public void savedPoetsMatchOriginal() throws IOException {
+		File f = new File("test/poet/poet.txt");
+		File saved = File.createTempFile("poet", ".graph");
+		try {
+			GraphPoet gp = new GraphPoet(f);
+			gp.save(saved);
+			List<String> inputs = Arrays.asList("Seek to explore new and exciting synergies!",
+					"seek new life and new worlds", "nothing here bridges", "");
+			for (GraphPoet copy : Arrays.asList(GraphPoet.load(saved), GraphPoet.mapped(saved))) {
+				for (String input : inputs) {
+					assertEquals(gp.poem(input), copy.poem(input));
+				}
+			}
+		} finally {
+			saved.delete();
+		}
+	}
+
+	@Test
+	public void appendedTextAddsBridges() throws IOException {
+		GraphPoet gp = GraphPoet.appendable(new File("test/poet/poet1.txt"));
+		assertEquals("A B c D", gp.poem("A B D"));
+		assertEquals("x z", gp.poem("x z"));
+		gp.append("X y Z");
+		assertEquals("x y z", gp.poem("x z"));
+		gp.ingest(new StringReader("x w z\nx w z"));
+		assertEquals("x w z", gp.poem("x z"));
+	}
+
+	@Test
+	public void appendedPiecesNotJoined() throws IOException {
+		GraphPoet gp = GraphPoet.appendable(new File("test/poet/poet1.txt"));
+		gp.append("p");
+		gp.append("q r");
+		assertEquals("p r", gp.poem("p r"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void appendToFixedPoet() throws IOException {
+		new GraphPoet(new File("test/poet/poet1.txt")).append("x y z");
+	}
+
+	@Test
+	public void concurrentAppendsWhilePoems() throws Exception {
+		GraphPoet gp = GraphPoet.appendable(new File("test/poet/poet1.txt"));
+		List<Thread> threads = new ArrayList<>();
+		List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+		for (int n = 0; n < 4; n++) {
+			final String bridge = n % 2 == 0 ? "y" : "w";
+			final int times = n % 2 == 0 ? 300 : 200;
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < times; i++) {
+					gp.append("x " + bridge + " z");
+				}
+			}));
+		}
+		threads.add(new Thread(() -> {
+			try {
+				for (int i = 0; i < 500; i++) {
+					String poem = gp.poem("x z");
+					assertTrue(poem, poem.equals("x z") || poem.equals("x y z") || poem.equals("x w z"));
+				}
+			} catch (Throwable t) {
+				failures.add(t);
+			}
+		}));
+		for (Thread t : threads) {
+			t.start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		assertTrue("expected no failures " + failures, failures.isEmpty());
+		assertEquals("x y z", gp.poem("x z"));
+		assertEquals("A B c D", gp.poem("A B D"));
+	}
+
+	@Test
+	public void vocabularySharedByPoets() throws IOException {
+		File f = new File("test/poet/poet1.txt");
+		SymbolTable<String> vocabulary = new SymbolTable<>();
+		GraphPoet first = new GraphPoet(f, GraphBackend.shared(vocabulary));
+		int size = vocabulary.size();
+		assertTrue("expected corpus word", vocabulary.id("e") >= 0);
+
+		GraphPoet second = new GraphPoet(f, GraphBackend.shared(vocabulary));
+		assertEquals("expected words of corpus once", size, vocabulary.size());
+		assertEquals(new GraphPoet(f).poem("A B D"), first.poem("A B D"));
+		assertEquals(first.poem("A B D"), second.poem("A B D"));
+	}
+
+	@Test
+	public void backendsWriteSamePoems() throws IOException {
+		File f = new File("test/poet/poet.txt");
+		String input = "Seek to explore new and exciting synergies!";
+		String expected = "Seek to explore strange new life and exciting synergies!";
+		assertEquals(expected, new GraphPoet(f).poem(input));
+		List<GraphBackend> backends = Arrays.asList(GraphBackend.frozen(), GraphBackend.concurrent(),
+				GraphBackend.compact(), GraphBackend.of(Graph::empty), GraphBackend.of(ConcreteEdgesGraph::new));
+		for (GraphBackend backend : backends) {
+			assertEquals(expected, new GraphPoet(f, backend).poem(input));
+		}
+	}
+
+	/** A ConcreteEdgesGraph that counts the bridge queries asked of it. */
+	private static final class CountingBridgeGraph extends ConcreteEdgesGraph implements BridgeGraph<String> {
+		private int queries = 0;
+
+		@Override
+		public void forEachBridge(String source, String target, BridgeVisitor<? super String> visitor) {
+			queries++;
+			forEachTarget(source, (bridge, first) -> {
+				int second = weight(bridge, target);
+				if (second > 0) {
+					visitor.visit(bridge, first, second);
+				}
+			});
+		}
+	}
+
+	@Test
+	public void bridgeGraphAskedForBridges() throws IOException {
+		File f = new File("test/poet/poet.txt");
+		String input = "Seek to explore new and exciting synergies!";
+		List<CountingBridgeGraph> graphs = new ArrayList<>();
+		GraphPoet gp = new GraphPoet(f, GraphBackend.of(() -> {
+			CountingBridgeGraph graph = new CountingBridgeGraph();
+			graphs.add(graph);
+			return graph;
+		}));
+		assertEquals(new GraphPoet(f).poem(input), gp.poem(input));
+		assertEquals("expected one graph", 1, graphs.size());
+		assertTrue("expected bridges found by the graph", graphs.get(0).queries > 0);
+	}
+
+	@Test
+	public void concurrentBackendAppendable() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet1.txt"), GraphBackend.concurrent());
+		gp.append("x y z");
+		assertEquals("x y z", gp.poem("x z"));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void compactBackendNotAppendable() throws IOException {
+		new GraphPoet(new File("test/poet/poet1.txt"), GraphBackend.compact()).append("x y z");
+	}
+
+	@Test
+	public void batchEmpty() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet.txt"));
+		assertEquals(Collections.emptyList(), gp.poems(Collections.<String>emptyList()));
+	}
+
+	@Test
+	public void batchMatchesPoems() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet.txt"));
+		List<String> inputs = Arrays.asList("Seek to explore new and exciting synergies!", "", "seek to",
+				"Seek to explore new and exciting synergies!", "to  explore", "life and NEW and");
+		List<String> expected = new ArrayList<>();
+		for (String input : inputs) {
+			expected.add(gp.poem(input));
+		}
+		assertEquals(expected, gp.poems(inputs));
+		assertEquals(expected, gp.poems(inputs.stream()).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void batchOnExecutor() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet1.txt"));
+		List<String> inputs = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			String input = "A B D w" + i + " E C w" + (i + 1);
+			inputs.add(input);
+			expected.add(gp.poem(input));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			assertEquals(expected, gp.poems(inputs, executor));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void poemsNotPrinted() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet.txt"));
+		PrintStream out = System.out;
+		ByteArrayOutputStream printed = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(printed));
+		try {
+			gp.poem("Seek to explore new and exciting synergies!");
+			gp.poems(Arrays.asList("Seek to explore new and exciting synergies!"));
+		} finally {
+			System.setOut(out);
+		}
+		assertEquals("", printed.toString());
+	}
+
+	@Test
+	public void uncachedPoetStatsZero() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet.txt"));
+		gp.poem("Seek to explore new and exciting synergies!");
+		assertEquals(0, gp.poemCacheStats().misses());
+		assertEquals(0, gp.bridgeCacheStats().misses());
+	}
+
+	@Test
+	public void cachedPoemHits() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet.txt")).cached(10, 1 << 20, 100);
+		String input = "Seek to explore new and exciting synergies!";
+		String expected = "Seek to explore strange new life and exciting synergies!";
+
+		assertEquals(expected, gp.poem(input));
+		assertEquals(expected, gp.poem(input));
+		CacheStats poems = gp.poemCacheStats();
+		assertEquals(1, poems.hits());
+		assertEquals(1, poems.misses());
+		assertEquals(1, poems.size());
+		assertTrue("expected bytes counted", poems.bytes() > 2 * (input.length() + expected.length()));
+		// six pairs looked up once, by the first poem only
+		assertEquals(6, gp.bridgeCacheStats().misses());
+		assertEquals(0, gp.bridgeCacheStats().hits());
+	}
+
+	@Test
+	public void cachedBridgesHitAcrossPoems() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet.txt")).cached(10, 1 << 20, 100);
+		assertEquals("to explore strange new", gp.poem("to explore new"));
+		assertEquals("Explore strange new", gp.poem("Explore new"));
+
+		assertEquals(1, gp.bridgeCacheStats().hits());
+		assertEquals(2, gp.bridgeCacheStats().misses());
+	}
+
+	@Test
+	public void cacheEvictsLeastRecentlyUsed() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet1.txt")).cached(2, 1 << 20, 0);
+		gp.poem("A C");
+		gp.poem("A D");
+		gp.poem("A C");
+		gp.poem("B E");
+
+		CacheStats poems = gp.poemCacheStats();
+		assertEquals(1, poems.evictions());
+		assertEquals(2, poems.size());
+		gp.poem("A C");
+		assertEquals("expected A C kept", 2, gp.poemCacheStats().hits());
+		gp.poem("A D");
+		assertEquals("expected A D evicted", 4, gp.poemCacheStats().misses());
+		assertEquals("expected no bridges kept", 0, gp.bridgeCacheStats().size());
+	}
+
+	@Test
+	public void cacheEvictsByBytes() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet1.txt")).cached(100, 400, 100);
+		for (int i = 0; i < 20; i++) {
+			gp.poem("A D " + i);
+		}
+		CacheStats poems = gp.poemCacheStats();
+		assertTrue("expected bytes bounded " + poems, poems.bytes() <= 400);
+		assertTrue("expected evictions " + poems, poems.evictions() > 0);
+		assertEquals(20 - poems.evictions(), poems.size());
+	}
+
+	@Test
+	public void cacheInvalidatedByAppend() throws IOException {
+		GraphPoet base = GraphPoet.appendable(new File("test/poet/poet1.txt"));
+		GraphPoet gp = base.cached(10, 1 << 20, 100);
+		assertEquals("x z", gp.poem("x z"));
+		assertEquals("x z", gp.poem("x z"));
+		base.append("x y z");
+
+		assertEquals("x y z", gp.poem("x z"));
+		assertEquals(1, gp.poemCacheStats().invalidations());
+		assertEquals(1, gp.bridgeCacheStats().invalidations());
+		gp.append("x w z x w z");
+		assertEquals("x w z", base.poem("x z"));
+		assertEquals("x w z", gp.poem("x z"));
+	}
+
+	@Test
+	public void cachedBatchMatchesPoems() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet.txt"));
+		GraphPoet cached = gp.cached(10, 1 << 20, 100);
+		List<String> inputs = Arrays.asList("Seek to explore new and exciting synergies!", "to explore new");
+		assertEquals(gp.poems(inputs), cached.poems(inputs));
+		assertEquals(gp.poems(inputs), cached.poems(inputs));
+		assertTrue("expected bridge hits", cached.bridgeCacheStats().hits() > 0);
+	}
+
+	@Test
+	public void inputWithoutWords() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet1.txt"));
+		assertEquals("", gp.poem(""));
+		assertEquals("", gp.poem(" \t\n"));
+	}
+
+	@Test
+	public void inputWhitespaceNormalized() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet1.txt"));
+		assertEquals("A B c D", gp.poem("  A\tB \r\n  D "));
+	}
+
+	@Test
+	public void repeatedWordsBridgedInPlace() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet1.txt"));
+		assertEquals("D e B c D", gp.poem("D B D"));
+		assertEquals("B c D e B c D", gp.poem("B D B D"));
+	}
+
+	@Test
+	public void longInput() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet1.txt"));
+		StringBuilder input = new StringBuilder();
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 50_000; i++) {
+			input.append("B D ");
+			expected.append(i == 0 ? "B c D" : " e B c D");
+		}
+		assertEquals(expected.toString(), gp.poem(input.toString()));
+	}
+
+	@Test
+	public void streamedPoemMatches() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet.txt"));
+		for (String input : new String[] { "", "  ", "Seek to explore new and exciting synergies!",
+				"\n to  explore\tnew\n", "new" }) {
+			StringWriter out = new StringWriter();
+			gp.poem(new StringReader(input), out);
+			assertEquals(gp.poem(input), out.toString());
+		}
+	}
+
+	@Test
+	public void streamedPoemOneCharAtATime() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet1.txt"));
+		Reader slow = new FilterReader(new StringReader("A B D  B D")) {
+			@Override
+			public int read(char[] buffer, int offset, int length) throws IOException {
+				return super.read(buffer, offset, Math.min(1, length));
+			}
+		};
+		StringWriter out = new StringWriter();
+		gp.poem(slow, out);
+		assertEquals("A B c D e B c D", out.toString());
+	}
+
+	@Test
+	public void streamedPoemWrittenAsRead() throws IOException {
+		GraphPoet gp = new GraphPoet(new File("test/poet/poet1.txt"));
+		StringWriter out = new StringWriter();
+		Reader in = new Reader() {
+			private final String[] pieces = { "A B ", "D ", "x" };
+			private int next = 0;
+
+			@Override
+			public int read(char[] buffer, int offset, int length) {
+				if (next == 2) {
+					assertEquals("expected words so far written", "A B c D", out.toString());
+				}
+				if (next == pieces.length) {
+					return -1;
+				}
+				String piece = pieces[next++];
+				piece.getChars(0, piece.length(), buffer, offset);
+				return piece.length();
+			}
+
+			@Override
+			public void close() {}
+		};
+		gp.poem(in, out);
+		assertEquals("A B c D x", out.toString());
+	}
+
 }
@@ -0,0 +1,111 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for LatencyHistogram.
+ */
+public class LatencyHistogramTest {
+
+	/*
+	 * 	Testing strategy
+	 *
+	 * 	The partitions are as follows:
+	 * 		1) Values recorded: none, one, many; 0, negative, below 8,
+	 * 		   large, Long.MAX_VALUE
+	 * 		2) Percentile: 0, 50, 100, out of range
+	 * 		3) Recorded from one thread, several threads
+	 */
+
+	@Test(expected = AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	@Test
+	public void empty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.count());
+		assertEquals(0, histogram.max());
+		assertEquals(0, histogram.mean(), 0);
+		assertEquals(0, histogram.percentile(50));
+		StringBuilder buckets = new StringBuilder();
+		histogram.writeBuckets(buckets);
+		assertEquals("", buckets.toString());
+	}
+
+	@Test
+	public void smallValuesExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		histogram.record(3);
+		histogram.record(7);
+		assertEquals(3, histogram.count());
+		assertEquals(0, histogram.percentile(0));
+		assertEquals(3, histogram.percentile(50));
+		assertEquals(7, histogram.percentile(100));
+		assertEquals(10 / 3.0, histogram.mean(), 1e-9);
+		StringBuilder buckets = new StringBuilder();
+		histogram.writeBuckets(buckets);
+		assertEquals("0\t0\t1\n3\t3\t1\n7\t7\t1\n", buckets.toString());
+	}
+
+	@Test
+	public void percentilesWithinAnEighth() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 1_000_000; value++) {
+			histogram.record(value * 1000);
+		}
+		for (double percent : new double[] { 1, 50, 90, 99, 99.9 }) {
+			double exact = percent / 100 * 1_000_000 * 1000;
+			long estimate = histogram.percentile(percent);
+			assertTrue(percent + ": " + estimate, estimate >= exact && estimate <= exact * 1.125);
+		}
+		assertEquals(1_000_000_000L, histogram.percentile(100));
+		assertEquals(1_000_000_000L, histogram.max());
+	}
+
+	@Test
+	public void largestValue() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, histogram.percentile(50));
+		StringBuilder buckets = new StringBuilder();
+		histogram.writeBuckets(buckets);
+		assertEquals((15L << 59) + "\t" + Long.MAX_VALUE + "\t1\n", buckets.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void percentileOutOfRange() {
+		new LatencyHistogram().percentile(101);
+	}
+
+	@Test
+	public void recordedFromSeveralThreads() throws InterruptedException {
+		LatencyHistogram histogram = new LatencyHistogram();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < 10_000; i++) {
+					histogram.record(i);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(40_000, histogram.count());
+		assertEquals(9_999, histogram.max());
+		assertEquals(9_999 / 2.0, histogram.mean(), 1e-9);
+	}
+
+}
@@ -0,0 +1,362 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests for PoemProcessor.
+ */
+public class PoemProcessorTest {
+
+	/*
+	 * 	Testing strategy
+	 *
+	 * 	The partitions are as follows:
+	 * 		1) Lines: none, one, many more than parallelism * batchSize
+	 * 		2) Subscriber demand: unbounded, one poem at a time
+	 * 		3) Executor: runs tasks on the calling thread, thread pool
+	 * 		4) Ending: upstream completes, upstream fails, writing a poem
+	 * 		   fails, either failure before there is a subscriber,
+	 * 		   subscriber cancels, subscriber requests nothing, lines
+	 * 		   arriving after a cancel
+	 * 		5) Subscribers: one, a second one rejected
+	 */
+
+	private static final long TIMEOUT_SECONDS = 30;
+
+	@Test(expected = AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void zeroParallelismRejected() throws IOException {
+		new PoemProcessor(poet(), Runnable::run, 0, 1);
+	}
+
+	@Test
+	public void noLines() throws Exception {
+		PoemProcessor processor = new PoemProcessor(poet(), Runnable::run, 2, 4);
+		LinePublisher lines = new LinePublisher(Collections.emptyList());
+		PoemSubscriber poems = new PoemSubscriber(Long.MAX_VALUE);
+		processor.subscribe(poems);
+		lines.subscribe(processor);
+		poems.await();
+		assertTrue(poems.completed);
+		assertEquals(Collections.emptyList(), poems.received);
+	}
+
+	@Test
+	public void oneLineOnCallingThread() throws Exception {
+		GraphPoet poet = poet();
+		PoemProcessor processor = new PoemProcessor(poet, Runnable::run, 1, 1);
+		LinePublisher lines = new LinePublisher(Collections.singletonList("Seek to explore new plus exciting synergies!"));
+		PoemSubscriber poems = new PoemSubscriber(Long.MAX_VALUE);
+		processor.subscribe(poems);
+		lines.subscribe(processor);
+		poems.await();
+		assertEquals(Collections.singletonList("Seek to explore strange new plus exciting synergies!"),
+				poems.received);
+	}
+
+	@Test
+	public void manyLinesInOrderOnPool() throws Exception {
+		GraphPoet poet = poet();
+		List<String> inputs = inputs(500);
+		ExecutorService pool = Executors.newFixedThreadPool(3);
+		try {
+			PoemProcessor processor = new PoemProcessor(poet, pool, 3, 8);
+			LinePublisher lines = new LinePublisher(inputs);
+			PoemSubscriber poems = new PoemSubscriber(Long.MAX_VALUE);
+			processor.subscribe(poems);
+			lines.subscribe(processor);
+			poems.await();
+			assertTrue(poems.completed);
+			assertEquals(poet.poems(inputs), poems.received);
+			assertTrue(lines.maxOutstanding() <= 3 * 8);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void onePoemAtATimeBoundsUpstream() throws Exception {
+		GraphPoet poet = poet();
+		List<String> inputs = inputs(200);
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			PoemProcessor processor = new PoemProcessor(poet, pool, 2, 4);
+			LinePublisher lines = new LinePublisher(inputs);
+			PoemSubscriber poems = new PoemSubscriber(1);
+			processor.subscribe(poems);
+			lines.subscribe(processor);
+			poems.await();
+			assertNull(poems.failure);
+			assertEquals(poet.poems(inputs), poems.received);
+			assertTrue(lines.maxOutstanding() <= 2 * 4);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void nothingRequestedNothingSent() throws Exception {
+		PoemProcessor processor = new PoemProcessor(poet(), Runnable::run, 2, 2);
+		LinePublisher lines = new LinePublisher(inputs(100));
+		PoemSubscriber poems = new PoemSubscriber(0);
+		processor.subscribe(poems);
+		lines.subscribe(processor);
+		assertEquals(Collections.emptyList(), poems.received);
+		assertFalse(poems.completed);
+		assertEquals(2 * 2, lines.maxOutstanding());
+	}
+
+	@Test
+	public void upstreamFailurePublished() throws Exception {
+		IllegalStateException failure = new IllegalStateException("upstream");
+		PoemProcessor failing = new PoemProcessor(poet(), Runnable::run, 1, 1);
+		PoemSubscriber failed = new PoemSubscriber(Long.MAX_VALUE);
+		failing.subscribe(failed);
+		failing.onSubscribe(new NoSubscription());
+		failing.onError(failure);
+		failed.await();
+		assertSame(failure, failed.failure);
+		assertFalse(failed.completed);
+	}
+
+	@Test
+	public void upstreamFailureBeforeSubscriber() throws Exception {
+		IllegalStateException failure = new IllegalStateException("upstream");
+		PoemProcessor failing = new PoemProcessor(poet(), Runnable::run, 1, 1);
+		failing.onSubscribe(new NoSubscription());
+		failing.onError(failure);
+		PoemSubscriber failed = new PoemSubscriber(Long.MAX_VALUE);
+		failing.subscribe(failed);
+		failed.await();
+		assertNotNull(failed.subscription);
+		assertSame(failure, failed.failure);
+	}
+
+	@Test
+	public void writingFailureBeforeSubscriber() throws Exception {
+		PoemProcessor processor = new PoemProcessor(poet(), task -> {
+			throw new RejectedExecutionException("no threads");
+		}, 1, 1);
+		LinePublisher lines = new LinePublisher(inputs(10));
+		lines.subscribe(processor);
+		assertTrue(lines.cancelled);
+		PoemSubscriber poems = new PoemSubscriber(0);
+		processor.subscribe(poems);
+		poems.await();
+		assertNotNull(poems.subscription);
+		assertTrue(poems.failure instanceof RejectedExecutionException);
+	}
+
+	@Test
+	public void writingFailurePublished() throws Exception {
+		PoemProcessor processor = new PoemProcessor(poet(), task -> {
+			throw new RejectedExecutionException("no threads");
+		}, 1, 1);
+		LinePublisher lines = new LinePublisher(inputs(10));
+		PoemSubscriber poems = new PoemSubscriber(Long.MAX_VALUE);
+		processor.subscribe(poems);
+		lines.subscribe(processor);
+		poems.await();
+		assertTrue(poems.failure instanceof RejectedExecutionException);
+		assertTrue(lines.cancelled);
+	}
+
+	@Test
+	public void cancelStopsUpstream() throws Exception {
+		PoemProcessor processor = new PoemProcessor(poet(), Runnable::run, 1, 1);
+		LinePublisher lines = new LinePublisher(inputs(10));
+		PoemSubscriber poems = new PoemSubscriber(Long.MAX_VALUE) {
+			@Override public void onNext(String poem) {
+				super.onNext(poem);
+				subscription.cancel();
+			}
+		};
+		processor.subscribe(poems);
+		lines.subscribe(processor);
+		assertEquals(1, poems.received.size());
+		assertTrue(lines.cancelled);
+		assertFalse(poems.completed);
+	}
+
+	@Test
+	public void linesAfterCancelDropped() throws Exception {
+		PoemProcessor processor = new PoemProcessor(poet(), Runnable::run, 2, 4);
+		PoemSubscriber poems = new PoemSubscriber(Long.MAX_VALUE);
+		processor.subscribe(poems);
+		processor.onSubscribe(new NoSubscription());
+		poems.subscription.cancel();
+		for (String line : inputs(3)) {
+			processor.onNext(line); // requested before the cancel; checkRep() runs in drain()
+		}
+		processor.onComplete();
+		assertEquals(Collections.emptyList(), poems.received);
+		assertFalse(poems.completed);
+		assertNull(poems.failure);
+	}
+
+	@Test
+	public void nonpositiveRequestFails() throws Exception {
+		PoemProcessor processor = new PoemProcessor(poet(), Runnable::run, 1, 1);
+		PoemSubscriber poems = new PoemSubscriber(0);
+		processor.subscribe(poems);
+		poems.subscription.request(0);
+		poems.await();
+		assertTrue(poems.failure instanceof IllegalArgumentException);
+	}
+
+	@Test
+	public void secondSubscriberRejected() throws Exception {
+		PoemProcessor processor = new PoemProcessor(poet(), Runnable::run, 1, 1);
+		processor.subscribe(new PoemSubscriber(0));
+		PoemSubscriber second = new PoemSubscriber(0);
+		processor.subscribe(second);
+		second.await();
+		assertTrue(second.failure instanceof IllegalStateException);
+	}
+
+	private static GraphPoet poet() throws IOException {
+		return new GraphPoet(new File("test/poet/poet.txt"));
+	}
+
+	private static List<String> inputs(int count) {
+		String[] words = { "Seek", "to", "explore", "new", "plus", "exciting", "synergies!", "life", "strange" };
+		List<String> inputs = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			inputs.add(words[i % words.length] + " " + words[(i * 7 + 3) % words.length]
+					+ " " + words[(i * 5 + 1) % words.length]);
+		}
+		return inputs;
+	}
+
+	/** Publishes a list of lines, as requested, recording the most ever requested but not sent. */
+	private static final class LinePublisher implements Flow.Publisher<String> {
+		private final List<String> lines;
+		private int sent = 0;
+		private long demand = 0;
+		private long maxOutstanding = 0;
+		private boolean sending = false;
+		private boolean completed = false;
+		private volatile boolean cancelled = false;
+
+		LinePublisher(List<String> lines) {
+			this.lines = lines;
+		}
+
+		synchronized long maxOutstanding() {
+			return maxOutstanding;
+		}
+
+		@Override
+		public void subscribe(Flow.Subscriber<? super String> subscriber) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+					synchronized (LinePublisher.this) {
+						demand += n;
+						maxOutstanding = Math.max(maxOutstanding, demand);
+						if (sending) {
+							return;
+						}
+						sending = true;
+						while (!cancelled && demand > 0 && sent < lines.size()) {
+							demand--;
+							subscriber.onNext(lines.get(sent++));
+						}
+						if (!cancelled && !completed && sent == lines.size()) {
+							completed = true;
+							subscriber.onComplete();
+						}
+						sending = false;
+					}
+				}
+
+				@Override
+				public void cancel() {
+					cancelled = true;
+				}
+			});
+			if (lines.isEmpty()) {
+				synchronized (this) {
+					completed = true;
+				}
+				subscriber.onComplete();
+			}
+		}
+	}
+
+	/** Records the poems it receives, requesting a fixed number at first and then one per poem if that is 1. */
+	private static class PoemSubscriber implements Flow.Subscriber<String> {
+		private final long initial;
+		private final CountDownLatch done = new CountDownLatch(1);
+		final List<String> received = Collections.synchronizedList(new ArrayList<>());
+		volatile Flow.Subscription subscription;
+		volatile boolean completed = false;
+		volatile Throwable failure = null;
+		volatile boolean signalledBeforeSubscribe = false;
+
+		PoemSubscriber(long initial) {
+			this.initial = initial;
+		}
+
+		void await() throws InterruptedException {
+			assertTrue("timed out", done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+			assertFalse("signalled before onSubscribe", signalledBeforeSubscribe);
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if (initial > 0) {
+				subscription.request(initial);
+			}
+		}
+
+		@Override
+		public void onNext(String poem) {
+			signalledBeforeSubscribe |= subscription == null;
+			received.add(poem);
+			if (initial == 1) {
+				subscription.request(1);
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			signalledBeforeSubscribe |= subscription == null;
+			failure = throwable;
+			done.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			signalledBeforeSubscribe |= subscription == null;
+			completed = true;
+			done.countDown();
+		}
+	}
+
+	private static final class NoSubscription implements Flow.Subscription {
+		@Override public void request(long n) {}
+		@Override public void cancel() {}
+	}
+
+}
@@ -0,0 +1,197 @@
+/* Copyright (c) 2015-2016 MIT 6.005 course staff, all rights reserved.
+ * Redistribution of original or derived work requires permission of course staff.
+ */
+package poet;
+
+import static org.junit.Assert.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Tests for PoemServer.
+ */
+public class PoemServerTest {
+
+	/*
+	 * 	Testing strategy
+	 *
+	 * 	The partitions are as follows:
+	 * 		1) Corpora: two served, request names one, names none
+	 * 		2) Poem request: POST, GET, empty input, concurrent requests
+	 * 		3) Statistics: summary, histogram of one corpus, unknown corpus
+	 */
+
+	@Test(expected = AssertionError.class)
+	public void testAssertionsEnabled() {
+		assert false; // make sure assertions are enabled with VM argument: -ea
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void slashInNameRejected() throws IOException {
+		Map<String, GraphPoet> poets = new LinkedHashMap<>();
+		poets.put("a/b", new GraphPoet(new File("test/poet/poet.txt")));
+		new PoemServer(poets, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+	}
+
+	@Test
+	public void poemPosted() throws IOException {
+		PoemServer server = server();
+		try {
+			Response response = request(server, "POST", "/poem/poet", "Seek to explore new plus exciting synergies!");
+			assertEquals(200, response.status);
+			assertEquals("Seek to explore strange new plus exciting synergies!", response.body);
+			assertEquals(1, server.latency("poet").count());
+			assertEquals(0, server.latency("poet1").count());
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void emptyInput() throws IOException {
+		PoemServer server = server();
+		try {
+			Response response = request(server, "POST", "/poem/poet1", "");
+			assertEquals(200, response.status);
+			assertEquals("", response.body);
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void unknownCorpus() throws IOException {
+		PoemServer server = server();
+		try {
+			assertEquals(404, request(server, "POST", "/poem/nobody", "some words").status);
+			assertNull(server.latency("nobody"));
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void poemNotPosted() throws IOException {
+		PoemServer server = server();
+		try {
+			Response response = request(server, "GET", "/poem/poet", null);
+			assertEquals(405, response.status);
+			assertEquals(0, server.latency("poet").count());
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void concurrentPoems() throws Exception {
+		PoemServer server = server();
+		try {
+			GraphPoet poet = new GraphPoet(new File("test/poet/poet.txt"));
+			ExecutorService clients = Executors.newFixedThreadPool(8);
+			try {
+				List<Future<Response>> responses = new ArrayList<>();
+				List<String> inputs = new ArrayList<>();
+				for (int i = 0; i < 64; i++) {
+					String input = "explore new " + i + " plus exciting";
+					inputs.add(input);
+					responses.add(clients.submit(() -> request(server, "POST", "/poem/poet", input)));
+				}
+				for (int i = 0; i < inputs.size(); i++) {
+					assertEquals(poet.poem(inputs.get(i)), responses.get(i).get().body);
+				}
+			} finally {
+				clients.shutdown();
+			}
+			assertEquals(64, server.latency("poet").count());
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void stats() throws IOException {
+		PoemServer server = server();
+		try {
+			request(server, "POST", "/poem/poet", "explore new");
+			Response summary = request(server, "GET", "/stats", null);
+			assertEquals(200, summary.status);
+			String[] lines = summary.body.split("\n");
+			assertEquals(2, lines.length);
+			assertTrue(lines[0], lines[0].startsWith("poet count=1 "));
+			assertTrue(lines[1], lines[1].startsWith("poet1 count=0 "));
+
+			Response histogram = request(server, "GET", "/stats/poet", null);
+			assertEquals(200, histogram.status);
+			String[] bucket = histogram.body.trim().split("\t");
+			assertEquals(3, bucket.length);
+			assertEquals("1", bucket[2]);
+			assertTrue(Long.parseLong(bucket[0]) <= server.latency("poet").max());
+
+			assertEquals(404, request(server, "GET", "/stats/nobody", null).status);
+		} finally {
+			server.stop();
+		}
+	}
+
+	/** Status and body of an HTTP response. */
+	private static final class Response {
+		final int status;
+		final String body;
+
+		Response(int status, String body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+	private static PoemServer server() throws IOException {
+		Map<String, GraphPoet> poets = new LinkedHashMap<>();
+		poets.put("poet", new GraphPoet(new File("test/poet/poet.txt")));
+		poets.put("poet1", new GraphPoet(new File("test/poet/poet1.txt")));
+		PoemServer server = new PoemServer(poets, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4);
+		server.start();
+		return server;
+	}
+
+	private static Response request(PoemServer server, String method, String path, String body) throws IOException {
+		URL url = new URL("http", server.address().getHostString(), server.address().getPort(), path);
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod(method);
+		if (body != null) {
+			connection.setDoOutput(true);
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(body.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		int status = connection.getResponseCode();
+		InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		if (in != null) {
+			try (InputStream stream = in) {
+				byte[] buffer = new byte[4096];
+				for (int n; (n = stream.read(buffer)) > 0;) {
+					bytes.write(buffer, 0, n);
+				}
+			}
+		}
+		return new Response(status, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+}